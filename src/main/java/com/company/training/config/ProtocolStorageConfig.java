@@ -0,0 +1,64 @@
+package com.company.training.config;
+
+import com.company.training.service.LocalProtocolStorage;
+import com.company.training.service.ProtocolStorage;
+import com.company.training.service.ProtocolStorageStatisticsService;
+import com.company.training.service.S3ProtocolStorage;
+import com.company.training.service.StatisticsRecordingProtocolStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+@Configuration
+public class ProtocolStorageConfig {
+
+    /**
+     * Хранилище файлов протоколов: protocol.storage.type=local (по умолчанию) или s3.
+     * Записи и удаления учитываются в статистике хранилища
+     */
+    @Bean
+    @Primary
+    public ProtocolStorage protocolStorage(ProtocolStorageStatisticsService statisticsService,
+                                           @Value("${protocol.storage.type:local}") String type,
+                                           @Value("${protocol.storage.location:uploads/protocols}") String location,
+                                           @Value("${protocol.storage.s3.endpoint:}") String endpoint,
+                                           @Value("${protocol.storage.s3.bucket:}") String bucket,
+                                           @Value("${protocol.storage.s3.prefix:protocols}") String prefix,
+                                           @Value("${protocol.storage.s3.region:us-east-1}") String region,
+                                           @Value("${protocol.storage.s3.access-key:}") String accessKey,
+                                           @Value("${protocol.storage.s3.secret-key:}") String secretKey) {
+        return new StatisticsRecordingProtocolStorage(
+                createBackend(type, location, endpoint, bucket, prefix, region, accessKey, secretKey),
+                statisticsService);
+    }
+
+    private static ProtocolStorage createBackend(String type, String location, String endpoint, String bucket,
+                                                 String prefix, String region, String accessKey, String secretKey) {
+        switch (type.trim().toLowerCase()) {
+            case "local":
+                return new LocalProtocolStorage(Paths.get(location));
+            case "s3":
+                if (endpoint.isBlank() || bucket.isBlank()) {
+                    throw new IllegalStateException(
+                            "Для protocol.storage.type=s3 нужны protocol.storage.s3.endpoint и protocol.storage.s3.bucket");
+                }
+                // Временные файлы перед отправкой пишутся рядом с локальным каталогом протоколов
+                return new S3ProtocolStorage(URI.create(endpoint), bucket, prefix, region, accessKey, secretKey,
+                        Paths.get(location).resolve(".s3-spool"));
+            default:
+                throw new IllegalStateException("Неизвестный тип хранилища протоколов: " + type);
+        }
+    }
+
+    /**
+     * Исходные PDF всегда лежат на локальном диске: OCR и PDFBox читают их как файлы
+     */
+    @Bean
+    public LocalProtocolStorage sourcePdfStorage(@Value("${pdf.storage.location:uploads/pdf-protocols}") String location) {
+        return new LocalProtocolStorage(Paths.get(location));
+    }
+}
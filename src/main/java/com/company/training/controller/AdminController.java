@@ -1,12 +1,18 @@
 package com.company.training.controller;
 
+import com.company.training.dto.KeysetPage;
+import com.company.training.dto.TrainingRecordView;
 import com.company.training.entity.Department;
 import com.company.training.entity.TrainingDirection;
 import com.company.training.service.DepartmentService;
+import com.company.training.service.ProtocolStorageGarbageCollector;
 import com.company.training.service.TrainingService;
 import com.company.training.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -14,11 +20,22 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/admin")
 public class AdminController {
 
+    private static final Map<String, String> RECORD_FILTERS = new LinkedHashMap<>();
+
+    static {
+        RECORD_FILTERS.put("all", "Все");
+        RECORD_FILTERS.put("complete", "Заполненные");
+        RECORD_FILTERS.put("with-files", "С файлом протокола");
+    }
+
     @Autowired
     private UserService userService;
 
@@ -28,6 +45,9 @@ public class AdminController {
     @Autowired
     private TrainingService trainingService;
 
+    @Autowired
+    private ProtocolStorageGarbageCollector protocolStorageGarbageCollector;
+
     // Пользователи
     @GetMapping("/users")
     public String userManagement(Model model) {
@@ -84,6 +104,36 @@ public class AdminController {
         return "redirect:/admin/departments";
     }
 
+    // Записи об обучении (постранично)
+    @GetMapping("/records")
+    public String trainingRecords(@RequestParam(defaultValue = "all") String filter,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                  @RequestParam(required = false) String after,
+                                  Model model) {
+        KeysetPage<TrainingRecordView> page;
+        String baseUrl = "/admin/records?filter=" + filter;
+        if (from != null && to != null) {
+            page = trainingService.getRecordsByExamDatePage(from, to, after);
+            baseUrl += "&from=" + from + "&to=" + to;
+            model.addAttribute("listSubtitle", "Экзамены с " + from + " по " + to);
+        } else {
+            switch (filter) {
+                case "complete" -> page = trainingService.getCompleteRecordsPage(after);
+                case "with-files" -> page = trainingService.getRecordsWithFilesPage(after);
+                default -> page = trainingService.getRecordsPage(after);
+            }
+        }
+
+        model.addAttribute("listTitle", "Записи об обучении");
+        model.addAttribute("filters", RECORD_FILTERS);
+        model.addAttribute("filter", filter);
+        model.addAttribute("page", page);
+        model.addAttribute("cursor", after);
+        model.addAttribute("baseUrl", baseUrl);
+        return "records";
+    }
+
     // Направления обучения
     @GetMapping("/training-directions")
     public String trainingDirections(Model model) {
@@ -117,4 +167,37 @@ public class AdminController {
         redirectAttributes.addFlashAttribute("success", "Направление удалено");
         return "redirect:/admin/training-directions";
     }
+
+    // Статистика хранилища протоколов (счетчики, без обхода файлов)
+    @GetMapping("/storage/statistics")
+    @ResponseBody
+    public TrainingService.ProtocolStats storageStatistics() {
+        return trainingService.getProtocolStats();
+    }
+
+    // Итог последней сборки неиспользуемых файлов протоколов
+    @GetMapping("/storage/gc")
+    @ResponseBody
+    public Map<String, Object> storageGarbageCollection() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", protocolStorageGarbageCollector.isRunning());
+        result.put("lastReport", protocolStorageGarbageCollector.getLastReport());
+        return result;
+    }
+
+    // Запуск сборки в фоне; по умолчанию только подсчет (dry-run)
+    @PostMapping("/storage/gc")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> runStorageGarbageCollection(
+            @RequestParam(defaultValue = "true") boolean dryRun) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (protocolStorageGarbageCollector.isRunning()) {
+            result.put("message", "Сборка уже выполняется");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        }
+        protocolStorageGarbageCollector.collectAsync(dryRun);
+        result.put("message", dryRun ? "Запущен подсчет неиспользуемых файлов" : "Запущена очистка неиспользуемых файлов");
+        result.put("dryRun", dryRun);
+        return ResponseEntity.accepted().body(result);
+    }
 }
\ No newline at end of file
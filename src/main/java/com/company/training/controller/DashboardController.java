@@ -1,5 +1,7 @@
 package com.company.training.controller;
 
+import com.company.training.dto.DashboardStatistics;
+import com.company.training.service.DashboardStatisticsService;
 import com.company.training.service.DepartmentService;
 import com.company.training.service.TrainingService;
 import com.company.training.service.EmployeeService;
@@ -7,10 +9,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Controller
 public class DashboardController {
 
+    // Сколько истекающих записей показывать на дашборде; общее число берется из статистики
+    private static final int EXPIRING_RECORDS_LIMIT = 10;
+
     @Autowired
     private DepartmentService departmentService;
 
@@ -20,20 +30,46 @@ public class DashboardController {
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
         model.addAttribute("title", "Dashboard");
         model.addAttribute("departments", departmentService.getAllDepartments());
-        model.addAttribute("expiringRecords", trainingService.getExpiringRecords());
+        model.addAttribute("expiringRecords", trainingService.getExpiringRecords(EXPIRING_RECORDS_LIMIT));
 
         // Добавляем статистику сотрудников
         long totalEmployees = employeeService.getAllEmployeesCount();
         model.addAttribute("totalEmployees", totalEmployees);
 
-        // Добавляем статистику записей обучения
-        long totalRecords = trainingService.getTotalTrainingRecordsCount();
-        model.addAttribute("totalRecords", totalRecords);
+        // Статистика записей обучения по статусам, отделам и направлениям
+        DashboardStatistics statistics = dashboardStatisticsService.getStatistics();
+        model.addAttribute("statistics", statistics);
+        model.addAttribute("totalRecords", statistics.getTotal().getTotal());
+
+        Map<Long, DashboardStatistics.StatusCounts> departmentStatistics = new HashMap<>();
+        for (DashboardStatistics.GroupStatistics department : statistics.getDepartments()) {
+            departmentStatistics.put(department.getId(), department.getCounts());
+        }
+        model.addAttribute("departmentStatistics", departmentStatistics);
 
         return "dashboard";
     }
-}
\ No newline at end of file
+
+    @GetMapping("/dashboard/expiring")
+    public String expiringRecords(@RequestParam(required = false) String after, Model model) {
+        model.addAttribute("listTitle", "Скоро истекают");
+        model.addAttribute("listSubtitle", "Срок действия истекает в ближайшие 3 месяца, ближайшие первыми");
+        model.addAttribute("page", trainingService.getExpiringRecordsPage(after));
+        model.addAttribute("cursor", after);
+        model.addAttribute("baseUrl", "/dashboard/expiring");
+        return "records";
+    }
+
+    @GetMapping("/dashboard/statistics")
+    @ResponseBody
+    public DashboardStatistics statistics() {
+        return dashboardStatisticsService.getStatistics();
+    }
+}
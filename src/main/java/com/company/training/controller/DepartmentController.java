@@ -7,15 +7,12 @@ import com.company.training.entity.TrainingRecord;
 import com.company.training.service.DepartmentService;
 import com.company.training.service.EmployeeService;
 import com.company.training.service.TrainingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -24,8 +21,6 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -46,6 +41,9 @@ public class DepartmentController {
     @Autowired
     private TrainingService trainingService;
 
+    @Autowired
+    private ProtocolFileResponder protocolFileResponder;
+
     @GetMapping("/{id}")
     public String viewDepartment(@PathVariable Long id, Model model) {
         try {
@@ -53,17 +51,11 @@ public class DepartmentController {
             List<Employee> employees = employeeService.getEmployeesByDepartment(id);
             List<TrainingDirection> directions = trainingService.getAllTrainingDirections();
 
-            // Загружаем записи об обучении для каждого сотрудника
-            Map<Long, Map<Long, TrainingRecord>> trainingRecordsMap = new HashMap<>();
+            // Загружаем записи об обучении всего отдела одним запросом
+            Map<Long, Map<Long, TrainingRecord>> trainingRecordsMap =
+                    trainingService.getTrainingMatrixByDepartment(id);
             for (Employee employee : employees) {
-                Map<Long, TrainingRecord> employeeRecords = new HashMap<>();
-                for (TrainingDirection direction : directions) {
-                    TrainingRecord record = trainingService.getTrainingRecord(employee.getId(), direction.getId());
-                    if (record != null) {
-                        employeeRecords.put(direction.getId(), record);
-                    }
-                }
-                trainingRecordsMap.put(employee.getId(), employeeRecords);
+                trainingRecordsMap.putIfAbsent(employee.getId(), new HashMap<>());
             }
 
             model.addAttribute("department", department);
@@ -80,6 +72,16 @@ public class DepartmentController {
         }
     }
 
+    @GetMapping("/{id}/records")
+    public String departmentRecords(@PathVariable Long id, @RequestParam(required = false) String after, Model model) {
+        Department department = departmentService.getDepartmentById(id);
+        model.addAttribute("listTitle", "Записи об обучении: " + department.getName());
+        model.addAttribute("page", trainingService.getDepartmentRecordsPage(id, after));
+        model.addAttribute("cursor", after);
+        model.addAttribute("baseUrl", "/departments/" + id + "/records");
+        return "records";
+    }
+
     @PostMapping("/{departmentId}/employees")
     public String addEmployee(@PathVariable Long departmentId,
                               @Valid @ModelAttribute("employee") Employee employee,
@@ -170,35 +172,9 @@ public class DepartmentController {
     }
 
     @GetMapping("/download/{fileName:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileName) {
-        try {
-            // Загружаем файл как ресурс
-            Path filePath = Paths.get("uploads/protocols").resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = "application/octet-stream";
-
-                // Определяем Content-Type по расширению файла
-                if (fileName.toLowerCase().endsWith(".pdf")) {
-                    contentType = "application/pdf";
-                } else if (fileName.toLowerCase().endsWith(".doc")) {
-                    contentType = "application/msword";
-                } else if (fileName.toLowerCase().endsWith(".docx")) {
-                    contentType = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
-                }
-
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION,
-                                "attachment; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                throw new RuntimeException("Файл не найден: " + fileName);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка при загрузке файла: " + e.getMessage(), e);
-        }
+    public void downloadFile(@PathVariable String fileName,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        protocolFileResponder.serve(fileName, ProtocolFileResponder.Disposition.ATTACHMENT, request, response);
     }
 
     @GetMapping("/{departmentId}/employees/{employeeId}/edit")
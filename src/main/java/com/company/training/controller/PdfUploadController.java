@@ -4,7 +4,9 @@ import com.company.training.dto.ParsedProtocolRecord;
 import com.company.training.dto.ParsedProtocolRecordWrapper;
 import com.company.training.dto.ProtocolValidationResult;
 import com.company.training.entity.PdfDocument;
+import com.company.training.service.OcrJobService;
 import com.company.training.service.PdfProcessingService;
+import com.company.training.service.TesseractEnginePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +17,9 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/admin/pdf")
@@ -26,6 +30,12 @@ public class PdfUploadController {
     @Autowired
     private PdfProcessingService pdfProcessingService;
 
+    @Autowired
+    private OcrJobService ocrJobService;
+
+    @Autowired
+    private TesseractEnginePool tesseractEnginePool;
+
     /**
      * Страница загрузки PDF
      */
@@ -56,9 +66,10 @@ public class PdfUploadController {
         try {
             PdfDocument.PdfType type = PdfDocument.PdfType.valueOf(pdfType);
             PdfDocument document = pdfProcessingService.uploadPdf(file, type);
+            ocrJobService.enqueue(document.getId());
 
             redirectAttributes.addFlashAttribute("success",
-                    "Файл успешно загружен. ID: " + document.getId());
+                    "Файл успешно загружен и поставлен в очередь распознавания. ID: " + document.getId());
             return "redirect:/admin/pdf/process/" + document.getId();
 
         } catch (Exception e) {
@@ -70,21 +81,12 @@ public class PdfUploadController {
     }
 
     /**
-     * Страница обработки OCR
+     * Страница обработки OCR: показывает прогресс фоновой обработки
      */
     @GetMapping("/process/{id}")
     public String showProcessPage(@PathVariable Long id, Model model) {
         PdfDocument document = pdfProcessingService.getPdfDocumentById(id);
 
-        // Если статус PENDING, запускаем OCR обработку
-        if (document.getStatus() == PdfDocument.ProcessingStatus.PENDING) {
-            try {
-                document = pdfProcessingService.processOcr(id);
-            } catch (Exception e) {
-                model.addAttribute("error", "Ошибка при запуске OCR: " + e.getMessage());
-            }
-        }
-
         // Если OCR завершен, перенаправляем на страницу валидации
         if (document.getStatus() == PdfDocument.ProcessingStatus.NEEDS_REVIEW) {
             return "redirect:/admin/pdf/parse/" + id;
@@ -96,22 +98,46 @@ public class PdfUploadController {
     }
 
     /**
-     * Запуск OCR обработки
+     * Состояние OCR обработки для опроса со страницы обработки
+     */
+    @GetMapping("/process/{id}/status")
+    @ResponseBody
+    public Map<String, Object> getProcessStatus(@PathVariable Long id) {
+        PdfDocument document = pdfProcessingService.getPdfDocumentById(id);
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("status", document.getStatus().name());
+        status.put("processedPages", document.getProcessedPages() != null ? document.getProcessedPages() : 0);
+        status.put("pageCount", document.getPageCount());
+        status.put("progressPercent", document.getProgressPercent());
+        status.put("etaSeconds", document.getEstimatedSecondsRemaining());
+        status.put("message", document.getProcessingResult());
+        return status;
+    }
+
+    /**
+     * Загрузка пула движков Tesseract: занятость и время ожидания свободного движка
+     */
+    @GetMapping("/ocr-engines")
+    @ResponseBody
+    public TesseractEnginePool.PoolStats getOcrEngineStats() {
+        return tesseractEnginePool.getStats();
+    }
+
+    /**
+     * Повторная постановка документа в очередь OCR (например, после ошибки)
      */
     @PostMapping("/process/{id}")
     public String processOcr(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
-            PdfDocument document = pdfProcessingService.processOcr(id);
-            redirectAttributes.addFlashAttribute("success",
-                    "OCR обработка завершена. Распознано " +
-                            (document.getOcrText() != null ? document.getOcrText().length() : 0) + " символов.");
-            return "redirect:/admin/pdf/parse/" + id;
+            ocrJobService.enqueue(id);
+            redirectAttributes.addFlashAttribute("success", "Документ поставлен в очередь распознавания");
         } catch (Exception e) {
-            logger.error("Ошибка OCR обработки", e);
+            logger.error("Ошибка постановки в очередь OCR", e);
             redirectAttributes.addFlashAttribute("error",
                     "Ошибка OCR: " + e.getMessage());
-            return "redirect:/admin/pdf/process/" + id;
         }
+        return "redirect:/admin/pdf/process/" + id;
     }
 
     /**
@@ -227,8 +253,7 @@ public class PdfUploadController {
         // Парсим записи
         List<ParsedProtocolRecord> records;
         if (document.getType() == PdfDocument.PdfType.OCCUPATIONAL_SAFETY) {
-            records = pdfProcessingService.parseOccupationalSafetyProtocol(
-                    document.getOcrText(), document.getId());
+            records = pdfProcessingService.getParsedRecords(document);
         } else {
             // Для промышленной безопасности - другая логика
             records = List.of();
@@ -0,0 +1,237 @@
+package com.company.training.controller;
+
+import com.company.training.service.ProtocolStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Отдача файлов протоколов из ProtocolStorage.
+ * - Условные запросы: ETag (размер и время изменения файла) и Last-Modified, ответ 304
+ * - Запрос части файла (Range: bytes=...), в том числе докачка и постраничная загрузка PDF в браузере
+ * - Тело отдается без копирования через буферы приложения: sendfile Tomcat, если коннектор
+ *   его поддерживает, иначе FileChannel.transferTo. Из S3 запрашивается только нужный диапазон
+ * Кеширование в браузере зависит от имени файла:
+ * - ключ по содержимому (SHA-256 + расширение) и старые имена-UUID записываются один раз
+ *   и никогда не меняются, поэтому кешируются как неизменяемые
+ * - страницы протоколов из PDF (protocol_...) при повторном сохранении перезаписываются
+ *   под тем же именем, для них браузер каждый раз проверяет ETag
+ */
+@Component
+public class ProtocolFileResponder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProtocolFileResponder.class);
+
+    // Имена-UUID, которые получали загруженные файлы до хранения по содержимому
+    private static final Pattern LEGACY_UUID_NAME =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(\\.[A-Za-z0-9]+)?");
+
+    private static final String IMMUTABLE_CACHE = "private, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE = "private, no-cache";
+
+    // Атрибуты запроса, по которым Tomcat сам отправляет файл через sendfile после обработчика
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ProtocolStorage protocolStorage;
+
+    public enum Disposition { ATTACHMENT, INLINE }
+
+    public void serve(String fileName, Disposition disposition,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<ProtocolStorage.StoredObject> stored;
+        try {
+            stored = protocolStorage.stat(fileName);
+        } catch (SecurityException e) {
+            // Имя из URL с каталогами или ".." - такого файла нет
+            stored = Optional.empty();
+        }
+        if (stored.isEmpty()) {
+            logger.warn("Файл протокола не найден: {}", fileName);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Файл протокола не найден");
+            return;
+        }
+
+        long length = stored.get().getSize();
+        long lastModified = stored.get().getLastModified();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        boolean writeOnce = ProtocolStorage.isContentKey(fileName) || LEGACY_UUID_NAME.matcher(fileName).matches();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, writeOnce ? IMMUTABLE_CACHE : REVALIDATE_CACHE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // Выставляет ETag и Last-Modified; при совпадении с If-None-Match / If-Modified-Since - 304
+        // (и 412 для If-Match / If-Unmodified-Since)
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(contentType(fileName));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                (disposition == Disposition.INLINE ? ContentDisposition.inline() : ContentDisposition.attachment())
+                        .filename(fileName, StandardCharsets.UTF_8)
+                        .build().toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeApplies(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                // Несколько диапазонов или неразборчивый заголовок - отдаем файл целиком
+                logger.debug("Range не поддерживается, файл {} отдается целиком: {}", fileName, range);
+            } else if (bounds.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            } else {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        Optional<Path> localFile = protocolStorage.localPath(fileName);
+        if (localFile.isEmpty()) {
+            // Объектное хранилище: запрашиваем только нужный диапазон
+            try (InputStream in = protocolStorage.open(fileName, start, end)) {
+                OutputStream out = response.getOutputStream();
+                byte[] buffer = new byte[64 * 1024];
+                long remaining = count;
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        break;
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                out.flush();
+            }
+            return;
+        }
+        Path file = localFile.get();
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * If-Range: диапазон отдается, только если у клиента та же версия файла
+     */
+    private static boolean rangeApplies(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return lastModified / 1000 <= since / 1000;
+        } catch (DateTimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Один диапазон "bytes=a-b", "bytes=a-" или "bytes=-n": [start, end] включительно.
+     * Пустой массив - диапазон вне файла (416), null - заголовок не обрабатывается
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Последние n байт
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                return length == 0 ? new long[0] : new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return new long[0];
+            }
+            return new long[]{start, Math.min(end, length - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String contentType(String fileName) {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".pdf")) {
+            return "application/pdf";
+        } else if (lower.endsWith(".doc")) {
+            return "application/msword";
+        } else if (lower.endsWith(".docx")) {
+            return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        }
+        return "application/octet-stream";
+    }
+}
@@ -0,0 +1,74 @@
+package com.company.training.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Сводная статистика записей об обучении для дашборда:
+ * итоги по статусам, по отделам и по направлениям
+ */
+public class DashboardStatistics {
+
+    private final StatusCounts total;
+    private final List<GroupStatistics> departments;
+    private final List<GroupStatistics> directions;
+    private final LocalDateTime calculatedAt;
+
+    public DashboardStatistics(StatusCounts total, List<GroupStatistics> departments,
+                               List<GroupStatistics> directions, LocalDateTime calculatedAt) {
+        this.total = total;
+        this.departments = departments;
+        this.directions = directions;
+        this.calculatedAt = calculatedAt;
+    }
+
+    public StatusCounts getTotal() { return total; }
+    public List<GroupStatistics> getDepartments() { return departments; }
+    public List<GroupStatistics> getDirections() { return directions; }
+    public LocalDateTime getCalculatedAt() { return calculatedAt; }
+
+    /**
+     * Число записей в каждом статусе. Статусы не пересекаются:
+     * "действует" - не просрочено и не истекает в ближайшие 3 месяца
+     */
+    public static class StatusCounts {
+        private long valid;
+        private long expiring;
+        private long expired;
+        private long inapplicable;
+
+        public void add(long valid, long expiring, long expired, long inapplicable) {
+            this.valid += valid;
+            this.expiring += expiring;
+            this.expired += expired;
+            this.inapplicable += inapplicable;
+        }
+
+        public long getValid() { return valid; }
+        public long getExpiring() { return expiring; }
+        public long getExpired() { return expired; }
+        public long getInapplicable() { return inapplicable; }
+
+        public long getTotal() {
+            return valid + expiring + expired + inapplicable;
+        }
+    }
+
+    /**
+     * Статистика одного отдела или направления
+     */
+    public static class GroupStatistics {
+        private final Long id;
+        private final String name;
+        private final StatusCounts counts = new StatusCounts();
+
+        public GroupStatistics(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public StatusCounts getCounts() { return counts; }
+    }
+}
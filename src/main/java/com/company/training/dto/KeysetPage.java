@@ -0,0 +1,28 @@
+package com.company.training.dto;
+
+import java.util.List;
+
+/**
+ * Страница списка с позиционированием по ключу сортировки (keyset).
+ * nextCursor - значение ключа последней строки; следующая страница
+ * запрашивается строго после него, без OFFSET
+ */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+
+    /**
+     * Позиция для следующей страницы; null, если это последняя страница
+     */
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+}
@@ -1,6 +1,8 @@
 package com.company.training.dto;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ParsedProtocolRecord {
     private Long id;
@@ -17,6 +19,9 @@ public class ParsedProtocolRecord {
     private Long matchedEmployeeId;
     private String confidence;
 
+    // Варианты сотрудников, если ФИО найдено только нечетко по фамилии (лучший первым)
+    private List<EmployeeCandidate> employeeCandidates = new ArrayList<>();
+
     // Поля для направления обучения
     private String trainingDirection;
     private Long matchedDirectionId;
@@ -62,6 +67,9 @@ public class ParsedProtocolRecord {
     public String getConfidence() { return confidence; }
     public void setConfidence(String confidence) { this.confidence = confidence; }
 
+    public List<EmployeeCandidate> getEmployeeCandidates() { return employeeCandidates; }
+    public void setEmployeeCandidates(List<EmployeeCandidate> employeeCandidates) { this.employeeCandidates = employeeCandidates; }
+
     public String getTrainingDirection() { return trainingDirection; }
     public void setTrainingDirection(String trainingDirection) { this.trainingDirection = trainingDirection; }
 
@@ -87,4 +95,35 @@ public class ParsedProtocolRecord {
         }
         return "Не указана";
     }
-}
\ No newline at end of file
+
+    /**
+     * Вариант сотрудника для выбора при проверке
+     */
+    public static class EmployeeCandidate {
+        private Long employeeId;
+        private String fullName;
+        private String pageWord;
+        private int scorePercent;
+
+        public EmployeeCandidate() {}
+
+        public EmployeeCandidate(Long employeeId, String fullName, String pageWord, int scorePercent) {
+            this.employeeId = employeeId;
+            this.fullName = fullName;
+            this.pageWord = pageWord;
+            this.scorePercent = scorePercent;
+        }
+
+        public Long getEmployeeId() { return employeeId; }
+        public void setEmployeeId(Long employeeId) { this.employeeId = employeeId; }
+
+        public String getFullName() { return fullName; }
+        public void setFullName(String fullName) { this.fullName = fullName; }
+
+        public String getPageWord() { return pageWord; }
+        public void setPageWord(String pageWord) { this.pageWord = pageWord; }
+
+        public int getScorePercent() { return scorePercent; }
+        public void setScorePercent(int scorePercent) { this.scorePercent = scorePercent; }
+    }
+}
@@ -0,0 +1,75 @@
+package com.company.training.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Строка списка записей об обучении. Заполняется конструктором прямо в JPQL
+ * запросе: в память читаются только нужные столбцы, без сущностей и их связей
+ */
+public class TrainingRecordView {
+
+    private final Long id;
+    private final Long employeeId;
+    private final String employeeName;
+    private final Long departmentId;
+    private final String departmentName;
+    private final Long directionId;
+    private final String directionName;
+    private final LocalDate examDate;
+    private final LocalDate nextExamDate;
+    private final String protocolNumber;
+    private final String fileName;
+    private final String filePath;
+    private final Boolean applicable;
+
+    public TrainingRecordView(Long id, Long employeeId, String employeeName, Long departmentId, String departmentName,
+                              Long directionId, String directionName, LocalDate examDate, LocalDate nextExamDate,
+                              String protocolNumber, String fileName, String filePath, Boolean applicable) {
+        this.id = id;
+        this.employeeId = employeeId;
+        this.employeeName = employeeName;
+        this.departmentId = departmentId;
+        this.departmentName = departmentName;
+        this.directionId = directionId;
+        this.directionName = directionName;
+        this.examDate = examDate;
+        this.nextExamDate = nextExamDate;
+        this.protocolNumber = protocolNumber;
+        this.fileName = fileName;
+        this.filePath = filePath;
+        this.applicable = applicable;
+    }
+
+    public Long getId() { return id; }
+    public Long getEmployeeId() { return employeeId; }
+    public String getEmployeeName() { return employeeName; }
+    public Long getDepartmentId() { return departmentId; }
+    public String getDepartmentName() { return departmentName; }
+    public Long getDirectionId() { return directionId; }
+    public String getDirectionName() { return directionName; }
+    public LocalDate getExamDate() { return examDate; }
+    public LocalDate getNextExamDate() { return nextExamDate; }
+    public String getProtocolNumber() { return protocolNumber; }
+    public String getFileName() { return fileName; }
+    public String getFilePath() { return filePath; }
+    public Boolean getApplicable() { return applicable; }
+
+    public boolean isExpired() {
+        return nextExamDate != null && LocalDate.now().isAfter(nextExamDate);
+    }
+
+    // Цвет строки - те же правила, что TrainingRecord.getStatusColor()
+    public String getStatusColor() {
+        if (applicable != null && !applicable) {
+            return "secondary";
+        } else if (isExpired()) {
+            return "danger";
+        } else if (nextExamDate != null && LocalDate.now().isAfter(nextExamDate.minusMonths(3))
+                && LocalDate.now().isBefore(nextExamDate)) {
+            return "warning";
+        } else if (applicable != null && applicable) {
+            return "success";
+        }
+        return "light";
+    }
+}
@@ -9,8 +9,11 @@ import java.util.List;
 
 @Entity
 @Table(name = "employees")
+@NamedEntityGraph(name = Employee.GRAPH_WITH_DEPARTMENT, attributeNodes = @NamedAttributeNode("department"))
 public class Employee {
 
+    public static final String GRAPH_WITH_DEPARTMENT = "Employee.withDepartment";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
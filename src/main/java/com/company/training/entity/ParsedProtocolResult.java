@@ -0,0 +1,75 @@
+package com.company.training.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Сохраненный результат парсинга протокола (записи для страницы валидации в JSON).
+ * Действителен, пока не изменились OCR текст документа (сверяется по хешу),
+ * сотрудники, отделы или направления обучения (тогда результаты удаляются,
+ * а поколение справочников в ParsedProtocolCache меняется).
+ */
+@Entity
+@Table(name = "parsed_protocol_results",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"pdf_document_id"}))
+public class ParsedProtocolResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pdf_document_id", nullable = false)
+    private Long pdfDocumentId;
+
+    // SHA-256 OCR текста, по которому выполнен парсинг
+    @Column(name = "ocr_text_hash", nullable = false, length = 64)
+    private String ocrTextHash;
+
+    @Column(name = "records_json", columnDefinition = "TEXT", nullable = false)
+    private String recordsJson;
+
+    // Поколение справочников, прочитанных парсингом (см. ParsedProtocolCache)
+    @Column(name = "reference_generation")
+    private Long referenceGeneration;
+
+    @Column(name = "record_count")
+    private Integer recordCount;
+
+    @Column(name = "parsed_at")
+    private LocalDateTime parsedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        parsedAt = LocalDateTime.now();
+    }
+
+    // Конструкторы
+    public ParsedProtocolResult() {}
+
+    public ParsedProtocolResult(Long pdfDocumentId) {
+        this.pdfDocumentId = pdfDocumentId;
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getPdfDocumentId() { return pdfDocumentId; }
+    public void setPdfDocumentId(Long pdfDocumentId) { this.pdfDocumentId = pdfDocumentId; }
+
+    public String getOcrTextHash() { return ocrTextHash; }
+    public void setOcrTextHash(String ocrTextHash) { this.ocrTextHash = ocrTextHash; }
+
+    public String getRecordsJson() { return recordsJson; }
+    public void setRecordsJson(String recordsJson) { this.recordsJson = recordsJson; }
+
+    public Long getReferenceGeneration() { return referenceGeneration; }
+    public void setReferenceGeneration(Long referenceGeneration) { this.referenceGeneration = referenceGeneration; }
+
+    public Integer getRecordCount() { return recordCount; }
+    public void setRecordCount(Integer recordCount) { this.recordCount = recordCount; }
+
+    public LocalDateTime getParsedAt() { return parsedAt; }
+    public void setParsedAt(LocalDateTime parsedAt) { this.parsedAt = parsedAt; }
+}
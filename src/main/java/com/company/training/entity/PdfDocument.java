@@ -1,10 +1,12 @@
 package com.company.training.entity;
 
 import jakarta.persistence.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "pdf_documents")
+@Table(name = "pdf_documents",
+        indexes = @Index(name = "idx_pdf_documents_content_hash", columnList = "content_hash"))
 public class PdfDocument {
 
     @Id
@@ -24,6 +26,10 @@ public class PdfDocument {
     @Column(nullable = false)
     private String filePath;
 
+    // SHA-256 содержимого файла (hex), по нему находим повторные загрузки
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "page_count")
     private Integer pageCount;
 
@@ -43,6 +49,17 @@ public class PdfDocument {
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
+    // Прогресс фоновой OCR обработки
+    @Column(name = "processed_pages")
+    private Integer processedPages;
+
+    @Column(name = "processing_started_at")
+    private LocalDateTime processingStartedAt;
+
+    // Сколько страниц было готово к началу текущего запуска (после возобновления не 0)
+    @Column(name = "processing_start_pages")
+    private Integer processingStartPages;
+
     @PrePersist
     protected void onCreate() {
         uploadedAt = LocalDateTime.now();
@@ -83,6 +100,9 @@ public class PdfDocument {
     public String getFilePath() { return filePath; }
     public void setFilePath(String filePath) { this.filePath = filePath; }
 
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
     public Integer getPageCount() { return pageCount; }
     public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
 
@@ -100,4 +120,38 @@ public class PdfDocument {
 
     public LocalDateTime getProcessedAt() { return processedAt; }
     public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
+
+    public Integer getProcessedPages() { return processedPages; }
+    public void setProcessedPages(Integer processedPages) { this.processedPages = processedPages; }
+
+    public LocalDateTime getProcessingStartedAt() { return processingStartedAt; }
+    public void setProcessingStartedAt(LocalDateTime processingStartedAt) { this.processingStartedAt = processingStartedAt; }
+
+    public Integer getProcessingStartPages() { return processingStartPages; }
+    public void setProcessingStartPages(Integer processingStartPages) { this.processingStartPages = processingStartPages; }
+
+    // Процент выполнения OCR
+    public int getProgressPercent() {
+        if (pageCount == null || pageCount == 0 || processedPages == null) {
+            return 0;
+        }
+        return Math.min(100, processedPages * 100 / pageCount);
+    }
+
+    // Оценка оставшегося времени OCR в секундах (null, если оценить пока нельзя).
+    // Скорость считается только по страницам текущего запуска: страницы, распознанные
+    // до возобновления, в processingStartedAt не укладываются
+    public Long getEstimatedSecondsRemaining() {
+        if (status != ProcessingStatus.PROCESSING || processingStartedAt == null
+                || pageCount == null || processedPages == null) {
+            return null;
+        }
+        int pagesThisRun = processedPages - (processingStartPages != null ? processingStartPages : 0);
+        if (pagesThisRun <= 0) {
+            return null;
+        }
+        long elapsedMillis = Duration.between(processingStartedAt, LocalDateTime.now()).toMillis();
+        long millisPerPage = elapsedMillis / pagesThisRun;
+        return Math.max(0, (pageCount - processedPages) * millisPerPage / 1000);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.company.training.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "pdf_page_ocr",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"pdf_document_id", "page_number"}),
+        indexes = @Index(name = "idx_pdf_page_ocr_page_hash", columnList = "page_hash"))
+public class PdfPageOcr {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pdf_document_id", nullable = false)
+    private Long pdfDocumentId;
+
+    // Номер страницы в PDF (с 1)
+    @Column(name = "page_number", nullable = false)
+    private Integer pageNumber;
+
+    // SHA-256 содержимого страницы (потоки контента и изображений), общий для одинаковых страниц
+    @Column(name = "page_hash", length = 64)
+    private String pageHash;
+
+    @Column(name = "ocr_text", columnDefinition = "TEXT")
+    private String text;
+
+    // Средняя уверенность распознавания, 0-100
+    private Float confidence;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PageStatus status;
+
+    // Откуда получен текст страницы
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private PageSource source;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public enum PageStatus {
+        DONE, ERROR
+    }
+
+    public enum PageSource {
+        OCR,         // Распознана Tesseract
+        TEXT_LAYER,  // Извлечена из текстового слоя PDF
+        CACHE        // Взята из ранее распознанной страницы с тем же содержимым
+    }
+
+    // Конструкторы
+    public PdfPageOcr() {}
+
+    public PdfPageOcr(Long pdfDocumentId, Integer pageNumber) {
+        this.pdfDocumentId = pdfDocumentId;
+        this.pageNumber = pageNumber;
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getPdfDocumentId() { return pdfDocumentId; }
+    public void setPdfDocumentId(Long pdfDocumentId) { this.pdfDocumentId = pdfDocumentId; }
+
+    public Integer getPageNumber() { return pageNumber; }
+    public void setPageNumber(Integer pageNumber) { this.pageNumber = pageNumber; }
+
+    public String getPageHash() { return pageHash; }
+    public void setPageHash(String pageHash) { this.pageHash = pageHash; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public Float getConfidence() { return confidence; }
+    public void setConfidence(Float confidence) { this.confidence = confidence; }
+
+    public Long getDurationMs() { return durationMs; }
+    public void setDurationMs(Long durationMs) { this.durationMs = durationMs; }
+
+    public PageStatus getStatus() { return status; }
+    public void setStatus(PageStatus status) { this.status = status; }
+
+    public PageSource getSource() { return source; }
+    public void setSource(PageSource source) { this.source = source; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public LocalDateTime getProcessedAt() { return processedAt; }
+    public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
+}
@@ -0,0 +1,69 @@
+package com.company.training.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Счетчики хранилища протоколов по типу файлов: одна строка на категорию.
+ * Обновляются приращениями при записи и удалении файлов, сверяются с хранилищем по расписанию
+ */
+@Entity
+@Table(name = "protocol_storage_stats")
+public class ProtocolStorageStat {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Category category;
+
+    @Column(name = "file_count", nullable = false)
+    private long fileCount;
+
+    @Column(name = "total_bytes", nullable = false)
+    private long totalBytes;
+
+    // Когда счетчики последний раз пересчитаны обходом хранилища
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+
+    public enum Category {
+        PDF, IMAGE, DOCUMENT, OTHER;
+
+        /**
+         * Категория по расширению имени файла
+         */
+        public static Category of(String fileName) {
+            String lower = fileName.toLowerCase();
+            if (lower.endsWith(".pdf")) {
+                return PDF;
+            } else if (lower.endsWith(".jpg") || lower.endsWith(".jpeg") ||
+                    lower.endsWith(".png") || lower.endsWith(".gif")) {
+                return IMAGE;
+            } else if (lower.endsWith(".doc") || lower.endsWith(".docx") ||
+                    lower.endsWith(".xls") || lower.endsWith(".xlsx")) {
+                return DOCUMENT;
+            }
+            return OTHER;
+        }
+    }
+
+    // Конструкторы
+    public ProtocolStorageStat() {}
+
+    public ProtocolStorageStat(Category category) {
+        this.category = category;
+    }
+
+    // Геттеры и сеттеры
+    public Category getCategory() { return category; }
+    public void setCategory(Category category) { this.category = category; }
+
+    public long getFileCount() { return fileCount; }
+    public void setFileCount(long fileCount) { this.fileCount = fileCount; }
+
+    public long getTotalBytes() { return totalBytes; }
+    public void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
+
+    public LocalDateTime getReconciledAt() { return reconciledAt; }
+    public void setReconciledAt(LocalDateTime reconciledAt) { this.reconciledAt = reconciledAt; }
+}
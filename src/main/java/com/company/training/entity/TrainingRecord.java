@@ -4,9 +4,25 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "training_records")
+@Table(name = "training_records",
+        indexes = {
+                @Index(name = "idx_training_records_next_exam_date", columnList = "next_exam_date"),
+                // Постраничные списки по дате экзамена сортируются по (exam_date, id)
+                @Index(name = "idx_training_records_exam_date_id", columnList = "exam_date, id"),
+                // Проверка ссылок на файлы протоколов (сборщик файлов, удаление общих файлов)
+                @Index(name = "idx_training_records_file_path", columnList = "file_path")
+        })
+// Запись вместе с сотрудником, его отделом и направлением - все, что выводится в списках
+@NamedEntityGraph(name = TrainingRecord.GRAPH_DETAILS,
+        attributeNodes = {
+                @NamedAttributeNode(value = "employee", subgraph = "employee"),
+                @NamedAttributeNode("trainingDirection")
+        },
+        subgraphs = @NamedSubgraph(name = "employee", attributeNodes = @NamedAttributeNode("department")))
 public class TrainingRecord {
 
+    public static final String GRAPH_DETAILS = "TrainingRecord.details";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -38,7 +54,9 @@ public class TrainingRecord {
     @Column(name = "created_at")
     private LocalDate createdAt;
 
-    @Transient
+    // Дата следующего экзамена: exam_date + validity_months направления.
+    // Хранится, чтобы выборки по срокам выполнялись в БД по индексу
+    @Column(name = "next_exam_date")
     private LocalDate nextExamDate;
 
     // Новое поле: номер страницы в исходном PDF
@@ -59,6 +77,26 @@ public class TrainingRecord {
         if (createdAt == null) {
             createdAt = LocalDate.now();
         }
+        syncNextExamDate();
+    }
+
+    // Пересчет при смене даты экзамена или направления. Вызывается из сеттеров, а не
+    // из @PreUpdate: во время flush нельзя подгружать ленивое направление
+    private void syncNextExamDate() {
+        nextExamDate = trainingDirection != null
+                ? calculateNextExamDate(examDate, trainingDirection.getValidityMonths())
+                : null;
+    }
+
+    /**
+     * Дата следующего экзамена; при изменении срока действия направления
+     * та же формула применяется в БД (TrainingRecordRepository.updateNextExamDateForDirection)
+     */
+    public static LocalDate calculateNextExamDate(LocalDate examDate, Integer validityMonths) {
+        if (examDate == null || validityMonths == null) {
+            return null;
+        }
+        return examDate.plusMonths(validityMonths);
     }
 
     // Геттеры и сеттеры
@@ -71,10 +109,14 @@ public class TrainingRecord {
     public TrainingDirection getTrainingDirection() { return trainingDirection; }
     public void setTrainingDirection(TrainingDirection trainingDirection) {
         this.trainingDirection = trainingDirection;
+        syncNextExamDate();
     }
 
     public LocalDate getExamDate() { return examDate; }
-    public void setExamDate(LocalDate examDate) { this.examDate = examDate; }
+    public void setExamDate(LocalDate examDate) {
+        this.examDate = examDate;
+        syncNextExamDate();
+    }
 
     public String getProtocolNumber() { return protocolNumber; }
     public void setProtocolNumber(String protocolNumber) { this.protocolNumber = protocolNumber; }
@@ -132,22 +174,20 @@ public class TrainingRecord {
         return "light";
     }
 
-    // ВЫЧИСЛЯЕМ nextExamDate динамически
+    // Сохраненная дата следующего экзамена; для еще не сохраненной записи вычисляется
     public LocalDate getNextExamDate() {
-        // Если поле уже установлено (например, в тестах), возвращаем его
         if (nextExamDate != null) {
             return nextExamDate;
         }
 
-        // Иначе вычисляем на основе examDate и validityMonths
-        if (examDate != null && trainingDirection != null && trainingDirection.getValidityMonths() != null) {
-            return examDate.plusMonths(trainingDirection.getValidityMonths());
+        if (trainingDirection != null) {
+            return calculateNextExamDate(examDate, trainingDirection.getValidityMonths());
         }
 
         return null;
     }
 
-    // Сеттер только для тестов
+    // Заполняется при сохранении; сеттер для тестов
     public void setNextExamDate(LocalDate nextExamDate) {
         this.nextExamDate = nextExamDate;
     }
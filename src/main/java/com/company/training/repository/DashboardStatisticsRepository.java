@@ -0,0 +1,78 @@
+package com.company.training.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Агрегирующий запрос статистики записей об обучении.
+ * Один проход по training_records с группировкой по паре (отдел, направление):
+ * таких групп немного, итоги по отделам, направлениям и общие складываются из них.
+ * Условия статусов совпадают с запросами TrainingRecordRepository (findExpired, findExpiring).
+ */
+@Repository
+public class DashboardStatisticsRepository {
+
+    private static final String APPLICABLE = "(tr.applicable IS NULL OR tr.applicable = true)";
+
+    private static final String STATISTICS_SQL =
+            "SELECT d.id AS department_id, d.name AS department_name, " +
+                    "td.id AS direction_id, td.name AS direction_name, " +
+                    // Без даты следующего экзамена запись считается действующей
+                    "COUNT(*) FILTER (WHERE " + APPLICABLE + " AND (tr.next_exam_date IS NULL " +
+                    "OR tr.next_exam_date = ? OR tr.next_exam_date >= ?)) AS valid_count, " +
+                    "COUNT(*) FILTER (WHERE " + APPLICABLE + " AND tr.next_exam_date > ? " +
+                    "AND tr.next_exam_date < ?) AS expiring_count, " +
+                    "COUNT(*) FILTER (WHERE " + APPLICABLE + " AND tr.next_exam_date < ?) AS expired_count, " +
+                    "COUNT(*) FILTER (WHERE tr.applicable = false) AS inapplicable_count " +
+                    "FROM training_records tr " +
+                    "JOIN employees e ON e.id = tr.employee_id " +
+                    "JOIN departments d ON d.id = e.department_id " +
+                    "JOIN training_directions td ON td.id = tr.training_direction_id " +
+                    "GROUP BY d.id, d.name, td.id, td.name";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Число записей по статусам для каждой пары (отдел, направление).
+     * expiringBefore - первая дата следующего экзамена, которая уже не считается "скоро истекает"
+     */
+    public List<StatusRow> countByDepartmentAndDirection(LocalDate today, LocalDate expiringBefore) {
+        return jdbcTemplate.query(STATISTICS_SQL, (rs, rowNum) -> {
+            StatusRow row = new StatusRow();
+            row.departmentId = rs.getLong("department_id");
+            row.departmentName = rs.getString("department_name");
+            row.directionId = rs.getLong("direction_id");
+            row.directionName = rs.getString("direction_name");
+            row.valid = rs.getLong("valid_count");
+            row.expiring = rs.getLong("expiring_count");
+            row.expired = rs.getLong("expired_count");
+            row.inapplicable = rs.getLong("inapplicable_count");
+            return row;
+        }, today, expiringBefore, today, expiringBefore, today);
+    }
+
+    public static class StatusRow {
+        private Long departmentId;
+        private String departmentName;
+        private Long directionId;
+        private String directionName;
+        private long valid;
+        private long expiring;
+        private long expired;
+        private long inapplicable;
+
+        public Long getDepartmentId() { return departmentId; }
+        public String getDepartmentName() { return departmentName; }
+        public Long getDirectionId() { return directionId; }
+        public String getDirectionName() { return directionName; }
+        public long getValid() { return valid; }
+        public long getExpiring() { return expiring; }
+        public long getExpired() { return expired; }
+        public long getInapplicable() { return inapplicable; }
+    }
+}
@@ -1,15 +1,21 @@
 package com.company.training.repository;
 
 import com.company.training.entity.Employee;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalDouble;
 
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     List<Employee> findByDepartmentIdOrderByFullNameAsc(Long departmentId);
+
+    // Сотрудник вместе с отделом одним запросом (экран проверки распознанного протокола)
+    @EntityGraph(Employee.GRAPH_WITH_DEPARTMENT)
+    Optional<Employee> findWithDepartmentById(Long id);
     boolean existsByEmail(String email);
     boolean existsByEmailAndIdNot(String email, Long id);
     long count();
@@ -0,0 +1,21 @@
+package com.company.training.repository;
+
+import com.company.training.entity.ParsedProtocolResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface ParsedProtocolResultRepository extends JpaRepository<ParsedProtocolResult, Long> {
+    Optional<ParsedProtocolResult> findByPdfDocumentId(Long pdfDocumentId);
+
+    // Одним запросом, без загрузки результатов в контекст
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ParsedProtocolResult r")
+    int deleteAllResults();
+}
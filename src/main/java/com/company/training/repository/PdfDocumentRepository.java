@@ -2,12 +2,41 @@ package com.company.training.repository;
 
 import com.company.training.entity.PdfDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PdfDocumentRepository extends JpaRepository<PdfDocument, Long> {
     List<PdfDocument> findByStatus(PdfDocument.ProcessingStatus status);
     List<PdfDocument> findByType(PdfDocument.PdfType type);
     List<PdfDocument> findAllByOrderByUploadedAtDesc();
+    List<PdfDocument> findByStatusOrderByUploadedAtAsc(PdfDocument.ProcessingStatus status);
+    Optional<PdfDocument> findFirstByContentHashAndOcrTextIsNotNullOrderByIdDesc(String contentHash);
+
+    // Атомарная смена статуса: возвращает 1, только если документ был в ожидаемом статусе
+    @Modifying
+    @Transactional
+    @Query("UPDATE PdfDocument d SET d.status = :newStatus WHERE d.id = :id AND d.status = :expectedStatus")
+    int updateStatusIfCurrent(@Param("id") Long id,
+                              @Param("expectedStatus") PdfDocument.ProcessingStatus expectedStatus,
+                              @Param("newStatus") PdfDocument.ProcessingStatus newStatus);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PdfDocument d SET d.status = :newStatus WHERE d.status = :expectedStatus")
+    int updateStatusForAll(@Param("expectedStatus") PdfDocument.ProcessingStatus expectedStatus,
+                           @Param("newStatus") PdfDocument.ProcessingStatus newStatus);
+
+    // Прогресс только растет: обновления из параллельных потоков могут прийти не по порядку
+    @Modifying
+    @Transactional
+    @Query("UPDATE PdfDocument d SET d.processedPages = :processedPages " +
+            "WHERE d.id = :id AND (d.processedPages IS NULL OR d.processedPages < :processedPages)")
+    int updateProcessedPages(@Param("id") Long id, @Param("processedPages") int processedPages);
 }
\ No newline at end of file
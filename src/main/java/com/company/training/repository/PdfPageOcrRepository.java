@@ -0,0 +1,21 @@
+package com.company.training.repository;
+
+import com.company.training.entity.PdfPageOcr;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PdfPageOcrRepository extends JpaRepository<PdfPageOcr, Long> {
+    List<PdfPageOcr> findByPdfDocumentIdOrderByPageNumberAsc(Long pdfDocumentId);
+    Optional<PdfPageOcr> findByPdfDocumentIdAndPageNumber(Long pdfDocumentId, Integer pageNumber);
+    Optional<PdfPageOcr> findFirstByPageHashAndStatusOrderByIdDesc(String pageHash, PdfPageOcr.PageStatus status);
+
+    @Query("SELECT p.pageNumber FROM PdfPageOcr p WHERE p.pdfDocumentId = :pdfDocumentId AND p.status = :status")
+    List<Integer> findPageNumbersByStatus(@Param("pdfDocumentId") Long pdfDocumentId,
+                                          @Param("status") PdfPageOcr.PageStatus status);
+}
@@ -0,0 +1,24 @@
+package com.company.training.repository;
+
+import com.company.training.entity.ProtocolStorageStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ProtocolStorageStatRepository extends JpaRepository<ProtocolStorageStat, ProtocolStorageStat.Category> {
+
+    /**
+     * Приращение счетчиков одним UPDATE: параллельные экземпляры приложения не затирают друг друга
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProtocolStorageStat s SET s.fileCount = s.fileCount + :files, s.totalBytes = s.totalBytes + :bytes " +
+            "WHERE s.category = :category")
+    int addDelta(@Param("category") ProtocolStorageStat.Category category,
+                 @Param("files") long files,
+                 @Param("bytes") long bytes);
+}
@@ -0,0 +1,121 @@
+package com.company.training.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Пакетная запись training_records через JDBC.
+ * У TrainingRecord ID генерируется IDENTITY, поэтому Hibernate вставляет такие
+ * сущности по одной; здесь вставки и обновления уходят пачками по BATCH_SIZE.
+ * Выполняется в транзакции вызывающего кода (тот же Connection, что и у JPA).
+ * Загруженные в контекст сущности TrainingRecord после записи не обновляются.
+ */
+@Repository
+public class TrainingRecordBatchRepository {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO training_records (employee_id, training_direction_id, exam_date, protocol_number, " +
+                    "next_exam_date, file_name, file_path, applicable, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+            "UPDATE training_records SET exam_date = ?, protocol_number = ?, next_exam_date = ?, file_name = ?, " +
+                    "file_path = ?, applicable = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<TrainingRecordRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        LocalDate createdAt = LocalDate.now();
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.getEmployeeId());
+            ps.setLong(2, row.getDirectionId());
+            setDate(ps, 3, row.getExamDate());
+            ps.setString(4, row.getProtocolNumber());
+            setDate(ps, 5, row.getNextExamDate());
+            ps.setString(6, row.getFileName());
+            ps.setString(7, row.getFilePath());
+            ps.setBoolean(8, row.isApplicable());
+            setDate(ps, 9, createdAt);
+        });
+    }
+
+    public void updateAll(List<TrainingRecordRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            setDate(ps, 1, row.getExamDate());
+            ps.setString(2, row.getProtocolNumber());
+            setDate(ps, 3, row.getNextExamDate());
+            ps.setString(4, row.getFileName());
+            ps.setString(5, row.getFilePath());
+            ps.setBoolean(6, row.isApplicable());
+            ps.setLong(7, row.getId());
+        });
+    }
+
+    private static void setDate(PreparedStatement ps, int index, LocalDate date) throws SQLException {
+        if (date != null) {
+            ps.setObject(index, date);
+        } else {
+            ps.setNull(index, Types.DATE);
+        }
+    }
+
+    /**
+     * Значения одной записи: id == null - вставка, иначе обновление
+     */
+    public static class TrainingRecordRow {
+        private Long id;
+        private Long employeeId;
+        private Long directionId;
+        private LocalDate examDate;
+        private String protocolNumber;
+        private LocalDate nextExamDate;
+        private String fileName;
+        private String filePath;
+        private boolean applicable = true;
+
+        public TrainingRecordRow(Long id, Long employeeId, Long directionId) {
+            this.id = id;
+            this.employeeId = employeeId;
+            this.directionId = directionId;
+        }
+
+        public boolean isInsert() { return id == null; }
+
+        public Long getId() { return id; }
+        public Long getEmployeeId() { return employeeId; }
+        public Long getDirectionId() { return directionId; }
+
+        public LocalDate getExamDate() { return examDate; }
+        public void setExamDate(LocalDate examDate) { this.examDate = examDate; }
+
+        public String getProtocolNumber() { return protocolNumber; }
+        public void setProtocolNumber(String protocolNumber) { this.protocolNumber = protocolNumber; }
+
+        public LocalDate getNextExamDate() { return nextExamDate; }
+        public void setNextExamDate(LocalDate nextExamDate) { this.nextExamDate = nextExamDate; }
+
+        public String getFileName() { return fileName; }
+        public void setFileName(String fileName) { this.fileName = fileName; }
+
+        public String getFilePath() { return filePath; }
+        public void setFilePath(String filePath) { this.filePath = filePath; }
+
+        public boolean isApplicable() { return applicable; }
+        public void setApplicable(boolean applicable) { this.applicable = applicable; }
+    }
+}
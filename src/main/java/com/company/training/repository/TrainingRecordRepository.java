@@ -1,47 +1,194 @@
 package com.company.training.repository;
 
+import com.company.training.dto.TrainingRecordView;
 import com.company.training.entity.Employee;
 import com.company.training.entity.TrainingDirection;
 import com.company.training.entity.TrainingRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TrainingRecordRepository extends JpaRepository<TrainingRecord, Long> {
+    // Списки записей для отображения загружаются вместе с сотрудником, отделом и направлением,
+    // иначе шаблон делает отдельный запрос на каждую связь каждой строки
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     List<TrainingRecord> findByEmployee(Employee employee);
     Optional<TrainingRecord> findByEmployeeAndTrainingDirection(Employee employee, TrainingDirection trainingDirection);
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     List<TrainingRecord> findByEmployeeDepartmentId(Long departmentId);
 
+    // Записи для набора сотрудников и направлений одним запросом (пакетное сохранение протоколов)
+    @Query("SELECT tr FROM TrainingRecord tr WHERE tr.employee.id IN :employeeIds " +
+            "AND tr.trainingDirection.id IN :directionIds ORDER BY tr.id")
+    List<TrainingRecord> findByEmployeeIdsAndDirectionIds(@Param("employeeIds") Collection<Long> employeeIds,
+                                                          @Param("directionIds") Collection<Long> directionIds);
+
     // Используем именованный параметр вместо entity
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.trainingDirection = :direction")
     List<TrainingRecord> findByTrainingDirection(@Param("direction") TrainingDirection direction);
 
+    // Все записи отдела вместе с сотрудником и направлением - для матрицы обучения одним запросом
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
+    @Query("SELECT tr FROM TrainingRecord tr WHERE tr.employee.department.id = :departmentId ORDER BY tr.id")
+    List<TrainingRecord> findByDepartmentIdWithEmployeeAndDirection(@Param("departmentId") Long departmentId);
+
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.employee.department.id = :departmentId AND tr.trainingDirection.id = :directionId")
     List<TrainingRecord> findByDepartmentAndDirection(@Param("departmentId") Long departmentId, @Param("directionId") Long directionId);
 
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.applicable = true AND tr.examDate IS NOT NULL")
     List<TrainingRecord> findApplicableRecords();
 
-    // Убираем запросы с nextExamDate, так как это вычисляемое поле
-    // Вместо них будем использовать простые запросы, а фильтрацию делать на уровне сервиса
+    // Выборки по сроку действия идут по индексу next_exam_date;
+    // сотрудник, отдел и направление подгружаются тем же запросом (граф TrainingRecord.details)
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
+    @Query("SELECT tr FROM TrainingRecord tr " +
+            "WHERE tr.nextExamDate > :today AND tr.nextExamDate < :expiringBefore " +
+            "AND (tr.applicable IS NULL OR tr.applicable = true) ORDER BY tr.nextExamDate")
+    List<TrainingRecord> findExpiring(@Param("today") LocalDate today,
+                                      @Param("expiringBefore") LocalDate expiringBefore);
+
+    // Первые записи того же списка (для дашборда)
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
+    @Query("SELECT tr FROM TrainingRecord tr " +
+            "WHERE tr.nextExamDate > :today AND tr.nextExamDate < :expiringBefore " +
+            "AND (tr.applicable IS NULL OR tr.applicable = true) ORDER BY tr.nextExamDate")
+    List<TrainingRecord> findExpiring(@Param("today") LocalDate today,
+                                      @Param("expiringBefore") LocalDate expiringBefore,
+                                      Pageable pageable);
+
+    @Query("SELECT COUNT(tr) FROM TrainingRecord tr " +
+            "WHERE tr.nextExamDate > :today AND tr.nextExamDate < :expiringBefore " +
+            "AND (tr.applicable IS NULL OR tr.applicable = true)")
+    long countExpiring(@Param("today") LocalDate today, @Param("expiringBefore") LocalDate expiringBefore);
+
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
+    @Query("SELECT tr FROM TrainingRecord tr " +
+            "WHERE tr.nextExamDate < :today AND (tr.applicable IS NULL OR tr.applicable = true) " +
+            "ORDER BY tr.nextExamDate")
+    List<TrainingRecord> findExpired(@Param("today") LocalDate today);
+
+    @Query("SELECT COUNT(tr) FROM TrainingRecord tr " +
+            "WHERE tr.nextExamDate < :today AND (tr.applicable IS NULL OR tr.applicable = true)")
+    long countExpired(@Param("today") LocalDate today);
+
+    // Без даты следующего экзамена запись не считается просроченной
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
+    @Query("SELECT tr FROM TrainingRecord tr " +
+            "WHERE (tr.nextExamDate IS NULL OR tr.nextExamDate >= :today) " +
+            "AND (tr.applicable IS NULL OR tr.applicable = true)")
+    List<TrainingRecord> findNotExpired(@Param("today") LocalDate today);
+
+    @Query("SELECT COUNT(tr) FROM TrainingRecord tr " +
+            "WHERE (tr.nextExamDate IS NULL OR tr.nextExamDate >= :today) " +
+            "AND (tr.applicable IS NULL OR tr.applicable = true)")
+    long countNotExpired(@Param("today") LocalDate today);
+
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
+    @Query("SELECT tr FROM TrainingRecord tr " +
+            "WHERE tr.nextExamDate BETWEEN :startDate AND :endDate AND tr.applicable = true " +
+            "ORDER BY tr.nextExamDate")
+    List<TrainingRecord> findApplicableByNextExamDateBetween(@Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate);
+
+    // Та же формула, что TrainingRecord.calculateNextExamDate: в PostgreSQL прибавление месяцев
+    // к 31-му числу тоже дает последний день короткого месяца; без даты экзамена результат NULL
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE training_records SET next_exam_date = " +
+            "CAST(exam_date + make_interval(months => :validityMonths) AS date) " +
+            "WHERE training_direction_id = :directionId", nativeQuery = true)
+    int updateNextExamDateForDirection(@Param("directionId") Long directionId,
+                                       @Param("validityMonths") int validityMonths);
+
+    // Заполнение next_exam_date у записей, созданных до появления столбца
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE training_records tr SET next_exam_date = " +
+            "CAST(tr.exam_date + make_interval(months => td.validity_months) AS date) " +
+            "FROM training_directions td WHERE td.id = tr.training_direction_id " +
+            "AND tr.next_exam_date IS NULL AND tr.exam_date IS NOT NULL AND td.validity_months IS NOT NULL",
+            nativeQuery = true)
+    int backfillNextExamDates();
+
+    // ==================== ПОСТРАНИЧНЫЕ СПИСКИ ====================
+    // Позиционирование по ключу сортировки: (дата, id) или id последней строки предыдущей
+    // страницы. Размер страницы задается Pageable без смещения (PageRequest.of(0, size)),
+    // id в ключе делает порядок однозначным при одинаковых датах
+
+    String VIEW_COLUMNS = "new com.company.training.dto.TrainingRecordView(tr.id, e.id, e.fullName, d.id, d.name, " +
+            "td.id, td.name, tr.examDate, tr.nextExamDate, tr.protocolNumber, tr.fileName, tr.filePath, tr.applicable)";
+
+    String VIEW_JOINS = "JOIN tr.employee e JOIN e.department d JOIN tr.trainingDirection td ";
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM TrainingRecord tr " + VIEW_JOINS +
+            "WHERE tr.id > :afterId ORDER BY tr.id")
+    List<TrainingRecordView> findViewsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM TrainingRecord tr " + VIEW_JOINS +
+            "WHERE d.id = :departmentId AND tr.id > :afterId ORDER BY tr.id")
+    List<TrainingRecordView> findViewsByDepartmentAfter(@Param("departmentId") Long departmentId,
+                                                        @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM TrainingRecord tr " + VIEW_JOINS +
+            "WHERE tr.filePath IS NOT NULL AND tr.id > :afterId ORDER BY tr.id")
+    List<TrainingRecordView> findViewsWithFilesAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // Новые экзамены первыми, как в findCompleteRecords
+    @Query("SELECT " + VIEW_COLUMNS + " FROM TrainingRecord tr " + VIEW_JOINS +
+            "WHERE tr.applicable = true AND tr.filePath IS NOT NULL AND tr.examDate IS NOT NULL " +
+            "AND (tr.examDate < :beforeDate OR (tr.examDate = :beforeDate AND tr.id < :beforeId)) " +
+            "ORDER BY tr.examDate DESC, tr.id DESC")
+    List<TrainingRecordView> findCompleteViewsBefore(@Param("beforeDate") LocalDate beforeDate,
+                                                     @Param("beforeId") long beforeId, Pageable pageable);
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM TrainingRecord tr " + VIEW_JOINS +
+            "WHERE tr.examDate BETWEEN :startDate AND :endDate " +
+            "AND (tr.examDate > :afterDate OR (tr.examDate = :afterDate AND tr.id > :afterId)) " +
+            "ORDER BY tr.examDate, tr.id")
+    List<TrainingRecordView> findViewsByExamDateBetweenAfter(@Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate,
+                                                             @Param("afterDate") LocalDate afterDate,
+                                                             @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM TrainingRecord tr " + VIEW_JOINS +
+            "WHERE tr.nextExamDate > :today AND tr.nextExamDate < :expiringBefore " +
+            "AND (tr.applicable IS NULL OR tr.applicable = true) " +
+            "AND (tr.nextExamDate > :afterDate OR (tr.nextExamDate = :afterDate AND tr.id > :afterId)) " +
+            "ORDER BY tr.nextExamDate, tr.id")
+    List<TrainingRecordView> findExpiringViewsAfter(@Param("today") LocalDate today,
+                                                    @Param("expiringBefore") LocalDate expiringBefore,
+                                                    @Param("afterDate") LocalDate afterDate,
+                                                    @Param("afterId") long afterId, Pageable pageable);
+
     List<TrainingRecord> findAll();
     long count();
 
     @Query("SELECT COUNT(tr) FROM TrainingRecord tr WHERE tr.applicable = true")
     long countApplicable();
 
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.employee.id = :employeeId ORDER BY tr.trainingDirection.name")
     List<TrainingRecord> findByEmployeeId(@Param("employeeId") Long employeeId);
 
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.trainingDirection.id = :directionId ORDER BY tr.employee.fullName")
     List<TrainingRecord> findByDirectionId(@Param("directionId") Long directionId);
 
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.examDate BETWEEN :startDate AND :endDate")
     List<TrainingRecord> findByExamDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
@@ -51,6 +198,17 @@ public interface TrainingRecordRepository extends JpaRepository<TrainingRecord,
     @Query("SELECT DISTINCT tr.trainingDirection FROM TrainingRecord tr WHERE tr.employee.id = :employeeId")
     List<TrainingDirection> findDirectionsByEmployee(@Param("employeeId") Long employeeId);
 
+    /**
+     * Какие из переданных имен файлов еще используются записями (пачка для сборщика файлов)
+     */
+    @Query("SELECT DISTINCT tr.filePath FROM TrainingRecord tr WHERE tr.filePath IN :filePaths")
+    List<String> findReferencedFilePaths(@Param("filePaths") Collection<String> filePaths);
+
+    boolean existsByFilePath(String filePath);
+
+    boolean existsByFilePathAndIdNot(String filePath, Long id);
+
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.filePath IS NOT NULL")
     List<TrainingRecord> findRecordsWithFiles();
 
@@ -63,12 +221,14 @@ public interface TrainingRecordRepository extends JpaRepository<TrainingRecord,
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.applicable = true AND (tr.examDate IS NULL OR tr.protocolNumber IS NULL)")
     List<TrainingRecord> findIncompleteRecords();
 
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.applicable = true AND tr.filePath IS NOT NULL AND tr.examDate IS NOT NULL ORDER BY tr.examDate DESC")
     List<TrainingRecord> findCompleteRecords();
 
     @Query("SELECT COUNT(tr) FROM TrainingRecord tr WHERE YEAR(tr.examDate) = :year AND MONTH(tr.examDate) = :month")
     long countByExamYearAndMonth(@Param("year") int year, @Param("month") int month);
 
+    @EntityGraph(TrainingRecord.GRAPH_DETAILS)
     @Query("SELECT tr FROM TrainingRecord tr WHERE tr.employee.department.id = :departmentId AND tr.applicable = true AND tr.examDate IS NOT NULL")
     List<TrainingRecord> findApplicableByDepartment(@Param("departmentId") Long departmentId);
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.company.training.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Автомат Ахо-Корасик: поиск всех вхождений набора строк за один проход по тексту.
+ * Строится один раз через Builder и дальше только читается, поэтому безопасен
+ * для одновременного использования из нескольких потоков.
+ *
+ * @param <T> значение, связанное с образцом (например, ID сотрудника)
+ */
+public class AhoCorasickMatcher<T> {
+
+    private final Node<T> root;
+    private final int patternCount;
+
+    private AhoCorasickMatcher(Node<T> root, int patternCount) {
+        this.root = root;
+        this.patternCount = patternCount;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    /**
+     * Все вхождения образцов в текст в порядке позиции их конца
+     */
+    public List<Hit<T>> findAll(CharSequence text) {
+        List<Hit<T>> hits = new ArrayList<>();
+        Cursor<T> cursor = cursor();
+        for (int i = 0; i < text.length(); i++) {
+            cursor.next(text.charAt(i), i, hits);
+        }
+        return hits;
+    }
+
+    /**
+     * Пошаговый поиск: символы подает вызывающий код, например лексер,
+     * который сам читает текст и может заодно приводить символы к нижнему регистру
+     */
+    public Cursor<T> cursor() {
+        return new Cursor<>(root);
+    }
+
+    /**
+     * Состояние пошагового поиска. Не потокобезопасно - свой курсор на каждый текст
+     */
+    public static class Cursor<T> {
+        private final Node<T> root;
+        private Node<T> state;
+
+        private Cursor(Node<T> root) {
+            this.root = root;
+            this.state = root;
+        }
+
+        /**
+         * Переход по символу c, стоящему в тексте на позиции position;
+         * вхождения, заканчивающиеся на этом символе, добавляются в hits
+         */
+        public void next(char c, int position, List<Hit<T>> hits) {
+            Node<T> next = state.child(c);
+            while (next == null && state != root) {
+                state = state.fail;
+                next = state.child(c);
+            }
+            state = next != null ? next : root;
+
+            Node<T> output = state.outputs.isEmpty() ? state.dictionaryLink : state;
+            while (output != null) {
+                for (Output<T> match : output.outputs) {
+                    hits.add(new Hit<>(position + 1 - match.length, position + 1, match.value));
+                }
+                output = output.dictionaryLink;
+            }
+        }
+    }
+
+    public static class Builder<T> {
+        private final Node<T> root = new Node<>();
+        private int patternCount = 0;
+
+        /**
+         * Добавляет образец. Пустые строки игнорируются,
+         * одна строка может быть добавлена с несколькими значениями
+         */
+        public Builder<T> add(String pattern, T value) {
+            if (pattern == null || pattern.isEmpty()) {
+                return this;
+            }
+            Node<T> node = root;
+            for (int i = 0; i < pattern.length(); i++) {
+                node = node.childOrCreate(pattern.charAt(i));
+            }
+            node.outputs.add(new Output<>(pattern.length(), value));
+            patternCount++;
+            return this;
+        }
+
+        public AhoCorasickMatcher<T> build() {
+            // Обход в ширину: ссылка неудачи узла строится по уже готовым ссылкам более коротких префиксов
+            Queue<Node<T>> queue = new ArrayDeque<>();
+            for (int i = 0; i < root.size; i++) {
+                Node<T> child = root.targets[i];
+                child.fail = root;
+                queue.add(child);
+            }
+
+            while (!queue.isEmpty()) {
+                Node<T> node = queue.poll();
+                for (int i = 0; i < node.size; i++) {
+                    char c = node.chars[i];
+                    Node<T> child = node.targets[i];
+
+                    Node<T> fallback = node.fail;
+                    Node<T> target = fallback.child(c);
+                    while (target == null && fallback != root) {
+                        fallback = fallback.fail;
+                        target = fallback.child(c);
+                    }
+                    child.fail = target != null ? target : root;
+                    child.dictionaryLink = child.fail.outputs.isEmpty()
+                            ? child.fail.dictionaryLink
+                            : child.fail;
+                    queue.add(child);
+                }
+            }
+            return new AhoCorasickMatcher<>(root, patternCount);
+        }
+    }
+
+    /**
+     * Найденное вхождение: [start, end) в исходном тексте
+     */
+    public static class Hit<T> {
+        private final int start;
+        private final int end;
+        private final T value;
+
+        private Hit(int start, int end, T value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+        }
+
+        public int getStart() { return start; }
+        public int getEnd() { return end; }
+        public T getValue() { return value; }
+    }
+
+    private static class Output<T> {
+        private final int length;
+        private final T value;
+
+        private Output(int length, T value) {
+            this.length = length;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Узел бора. Переходы хранятся в компактных массивах: у узлов имен
+     * обычно один-два потомка, поэтому линейный поиск быстрее хеш-таблицы
+     */
+    private static class Node<T> {
+        private char[] chars = new char[0];
+        private Node<T>[] targets = newArray(0);
+        private int size = 0;
+        private final List<Output<T>> outputs = new ArrayList<>(1);
+        private Node<T> fail;
+        private Node<T> dictionaryLink;
+
+        private Node<T> child(char c) {
+            for (int i = 0; i < size; i++) {
+                if (chars[i] == c) {
+                    return targets[i];
+                }
+            }
+            return null;
+        }
+
+        private Node<T> childOrCreate(char c) {
+            Node<T> existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == chars.length) {
+                int capacity = Math.max(2, size * 2);
+                chars = Arrays.copyOf(chars, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+            }
+            Node<T> created = new Node<>();
+            chars[size] = c;
+            targets[size] = created;
+            size++;
+            return created;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int size) {
+            return (Node<T>[]) new Node[size];
+        }
+    }
+}
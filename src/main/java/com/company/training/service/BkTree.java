@@ -0,0 +1,155 @@
+package com.company.training.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BK-дерево по расстоянию Левенштейна для поиска строк с ограниченным числом ошибок.
+ * Поиск с радиусом r проверяет только поддеревья, ребра которых лежат в [d - r, d + r],
+ * а само расстояние считается с отсечением, как только оно заведомо превышает нужное.
+ *
+ * @param <T> значения, связанные со строкой (например, ID сотрудников с этой фамилией)
+ */
+public class BkTree<T> {
+
+    private Node<T> root;
+    private int size = 0;
+
+    public void add(String key, T value) {
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        if (root == null) {
+            root = new Node<>(key);
+            root.values.add(value);
+            size++;
+            return;
+        }
+
+        Node<T> node = root;
+        while (true) {
+            int distance = distance(key, node.key, Integer.MAX_VALUE);
+            if (distance == 0) {
+                node.values.add(value);
+                return;
+            }
+            Node<T> child = node.children.get(distance);
+            if (child == null) {
+                child = new Node<>(key);
+                child.values.add(value);
+                node.children.put(distance, child);
+                node.maxChildDistance = Math.max(node.maxChildDistance, distance);
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Все строки на расстоянии не больше maxDistance от query
+     */
+    public List<Match<T>> search(String query, int maxDistance) {
+        List<Match<T>> matches = new ArrayList<>();
+        if (root == null || query == null || query.isEmpty()) {
+            return matches;
+        }
+
+        Deque<Node<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<T> node = stack.pop();
+
+            // Точное расстояние нужно только в пределах, где еще возможны подходящие ребра
+            int limit = maxDistance + node.maxChildDistance;
+            int distance = distance(query, node.key, limit);
+            if (distance <= maxDistance) {
+                matches.add(new Match<>(node.key, distance, node.values));
+            }
+            if (distance > limit) {
+                continue;
+            }
+
+            for (Map.Entry<Integer, Node<T>> child : node.children.entrySet()) {
+                int edge = child.getKey();
+                if (edge >= distance - maxDistance && edge <= distance + maxDistance) {
+                    stack.push(child.getValue());
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Расстояние Левенштейна с отсечением: если оно больше limit, возвращается limit + 1
+     */
+    static int distance(String a, String b, int limit) {
+        int lengthA = a.length();
+        int lengthB = b.length();
+        if (Math.abs(lengthA - lengthB) > limit) {
+            return limit + 1;
+        }
+
+        int[] previous = new int[lengthB + 1];
+        int[] current = new int[lengthB + 1];
+        for (int j = 0; j <= lengthB; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= lengthA; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char charA = a.charAt(i - 1);
+            for (int j = 1; j <= lengthB; j++) {
+                int cost = charA == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            // Значения в следующих строках не меньше минимума текущей
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int distance = previous[lengthB];
+        return distance > limit ? limit + 1 : distance;
+    }
+
+    public static class Match<T> {
+        private final String key;
+        private final int distance;
+        private final List<T> values;
+
+        private Match(String key, int distance, List<T> values) {
+            this.key = key;
+            this.distance = distance;
+            this.values = values;
+        }
+
+        public String getKey() { return key; }
+        public int getDistance() { return distance; }
+        public List<T> getValues() { return values; }
+    }
+
+    private static class Node<T> {
+        private final String key;
+        private final List<T> values = new ArrayList<>(1);
+        private final Map<Integer, Node<T>> children = new HashMap<>();
+        private int maxChildDistance = 0;
+
+        private Node(String key) {
+            this.key = key;
+        }
+    }
+}
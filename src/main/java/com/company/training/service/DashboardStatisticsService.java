@@ -0,0 +1,108 @@
+package com.company.training.service;
+
+import com.company.training.dto.DashboardStatistics;
+import com.company.training.repository.DashboardStatisticsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Статистика дашборда. Считается одним агрегирующим запросом и хранится
+ * в памяти короткое время (dashboard.statistics.ttl-seconds): при частых
+ * открытиях дашборда база не пересчитывает одно и то же. Изменения записей
+ * становятся видны в статистике не позже, чем через это время.
+ */
+@Service
+public class DashboardStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStatisticsService.class);
+
+    private final Duration ttl;
+
+    @Autowired
+    private DashboardStatisticsRepository dashboardStatisticsRepository;
+
+    private volatile Snapshot snapshot;
+
+    public DashboardStatisticsService(@Value("${dashboard.statistics.ttl-seconds:30}") long ttlSeconds) {
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    public DashboardStatistics getStatistics() {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (current == null || now - current.loadedAt > ttl.toNanos()) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || now - current.loadedAt > ttl.toNanos()) {
+                    current = new Snapshot(calculate(), System.nanoTime());
+                    snapshot = current;
+                }
+            }
+        }
+        return current.statistics;
+    }
+
+    /**
+     * Сбросить сохраненную статистику, например после массового импорта
+     */
+    public void invalidate() {
+        TransactionHooks.afterCommit(() -> snapshot = null);
+    }
+
+    private DashboardStatistics calculate() {
+        long startedAt = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        List<DashboardStatisticsRepository.StatusRow> rows =
+                dashboardStatisticsRepository.countByDepartmentAndDirection(today, TrainingService.expiringBefore(today));
+
+        DashboardStatistics.StatusCounts total = new DashboardStatistics.StatusCounts();
+        Map<Long, DashboardStatistics.GroupStatistics> departments = new LinkedHashMap<>();
+        Map<Long, DashboardStatistics.GroupStatistics> directions = new LinkedHashMap<>();
+        for (DashboardStatisticsRepository.StatusRow row : rows) {
+            add(total, row);
+            add(departments.computeIfAbsent(row.getDepartmentId(),
+                    id -> new DashboardStatistics.GroupStatistics(id, row.getDepartmentName())).getCounts(), row);
+            add(directions.computeIfAbsent(row.getDirectionId(),
+                    id -> new DashboardStatistics.GroupStatistics(id, row.getDirectionName())).getCounts(), row);
+        }
+
+        logger.debug("Статистика дашборда пересчитана: {} записей, {} групп за {} мс",
+                total.getTotal(), rows.size(), System.currentTimeMillis() - startedAt);
+        return new DashboardStatistics(total, sortedByName(departments), sortedByName(directions),
+                LocalDateTime.now());
+    }
+
+    private static void add(DashboardStatistics.StatusCounts counts, DashboardStatisticsRepository.StatusRow row) {
+        counts.add(row.getValid(), row.getExpiring(), row.getExpired(), row.getInapplicable());
+    }
+
+    private static List<DashboardStatistics.GroupStatistics> sortedByName(
+            Map<Long, DashboardStatistics.GroupStatistics> groups) {
+        List<DashboardStatistics.GroupStatistics> sorted = new ArrayList<>(groups.values());
+        sorted.sort(Comparator.comparing(DashboardStatistics.GroupStatistics::getName,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return List.copyOf(sorted);
+    }
+
+    private static class Snapshot {
+        private final DashboardStatistics statistics;
+        private final long loadedAt;
+
+        private Snapshot(DashboardStatistics statistics, long loadedAt) {
+            this.statistics = statistics;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
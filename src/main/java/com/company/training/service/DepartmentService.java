@@ -15,6 +15,10 @@ public class DepartmentService {
     @Autowired
     private DepartmentRepository departmentRepository;
 
+    // Название отдела попадает в записи парсинга протоколов
+    @Autowired
+    private ParsedProtocolCache parsedProtocolCache;
+
     public List<Department> getAllDepartments() {
         return departmentRepository.findAllByOrderByNameAsc();
     }
@@ -29,7 +33,9 @@ public class DepartmentService {
         existing.setName(department.getName());
         existing.setDescription(department.getDescription());
 
-        return departmentRepository.save(existing);
+        Department saved = departmentRepository.save(existing);
+        parsedProtocolCache.invalidateAll();
+        return saved;
     }
 
     public void deleteDepartment(Long id) {
@@ -37,6 +43,7 @@ public class DepartmentService {
             throw new RuntimeException("Отдел с ID " + id + " не найден");
         }
         departmentRepository.deleteById(id);
+        parsedProtocolCache.invalidateAll();
     }
 
     public Department getDepartmentById(Long id) {
@@ -0,0 +1,296 @@
+package com.company.training.service;
+
+import com.company.training.entity.Employee;
+import com.company.training.repository.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Индекс ФИО сотрудников для поиска на страницах протоколов.
+ * Ключи - нормализованные "фамилия имя отчество" и "фамилия имя", поиск всех ключей
+ * на странице выполняется автоматом Ахо-Корасик за один проход по тексту.
+ * Для страниц, где ФИО целиком не найдено (ошибки OCR), есть нечеткий поиск
+ * по фамилиям через BK-дерево с ограниченным расстоянием Левенштейна.
+ * Ключи обновляются точечно при изменении сотрудников в EmployeeService,
+ * автомат и дерево пересобираются из них при следующем поиске.
+ */
+@Component
+public class EmployeeNameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeNameIndex.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    // Минимальная схожесть фамилии (1 - расстояние / длина более длинной строки)
+    private static final double MIN_SURNAME_SIMILARITY = 0.7;
+
+    private final Map<Long, IndexedEmployee> employees = new HashMap<>();
+    private boolean loaded = false;
+    private Snapshot snapshot;
+
+    /**
+     * Лучшее совпадение на странице: целые слова важнее вхождения внутрь слова,
+     * полное ФИО важнее пары "фамилия имя", при равенстве - то, что встречается раньше
+     */
+    public Optional<Long> findBestMatch(ProtocolPageLexer.PageTokens pageTokens) {
+        EmployeeMatch best = null;
+        // Нормализованный текст строит лексер в своем проходе по странице
+        for (EmployeeMatch match : findMatches(pageTokens.getNormalizedText())) {
+            if (best == null || match.isBetterThan(best)) {
+                best = match;
+            }
+        }
+        return best != null ? Optional.of(best.getEmployeeId()) : Optional.empty();
+    }
+
+    /**
+     * Все вхождения ФИО сотрудников в нормализованный текст страницы
+     */
+    public List<EmployeeMatch> findMatches(String normalizedText) {
+        List<EmployeeMatch> matches = new ArrayList<>();
+        for (AhoCorasickMatcher.Hit<NameKey> hit : currentIndex().matcher.findAll(normalizedText)) {
+            boolean wordBounded = (hit.getStart() == 0 || normalizedText.charAt(hit.getStart() - 1) == ' ')
+                    && (hit.getEnd() == normalizedText.length() || normalizedText.charAt(hit.getEnd()) == ' ');
+            matches.add(new EmployeeMatch(hit.getValue().employeeId, hit.getStart(),
+                    hit.getValue().fullName, wordBounded));
+        }
+        return matches;
+    }
+
+    /**
+     * Нечеткий поиск сотрудников по словам страницы, похожим на фамилии.
+     * Возвращает не больше limit кандидатов, лучшие первыми; у каждого сотрудника
+     * учитывается слово страницы с наибольшей схожестью
+     */
+    public List<SurnameCandidate> findBySurname(Collection<String> pageWords, int limit) {
+        Snapshot index = currentIndex();
+        Map<Long, SurnameCandidate> bestByEmployee = new HashMap<>();
+
+        for (String pageWord : pageWords) {
+            String surname = normalize(pageWord);
+            int length = surname.length();
+            if (length == 0) {
+                continue;
+            }
+            // d < 0.3 * max(|a|, |b|) и |b| <= |a| + d дают d < 3|a| / 7
+            int maxDistance = (3 * length - 1) / 7;
+
+            for (BkTree.Match<Long> match : index.surnameTree.search(surname, maxDistance)) {
+                double score = 1.0 - (double) match.getDistance() / Math.max(length, match.getKey().length());
+                if (score <= MIN_SURNAME_SIMILARITY) {
+                    continue;
+                }
+                for (Long employeeId : match.getValues()) {
+                    SurnameCandidate existing = bestByEmployee.get(employeeId);
+                    if (existing == null || score > existing.getScore()) {
+                        IndexedEmployee employee = index.employees.get(employeeId);
+                        bestByEmployee.put(employeeId, new SurnameCandidate(employeeId,
+                                employee != null ? employee.fullName : null, pageWord, score));
+                    }
+                }
+            }
+        }
+
+        List<SurnameCandidate> candidates = new ArrayList<>(bestByEmployee.values());
+        candidates.sort(Comparator.comparingDouble(SurnameCandidate::getScore).reversed()
+                .thenComparing(SurnameCandidate::getEmployeeId));
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    /**
+     * Добавление или изменение сотрудника. В транзакции применяется после коммита
+     */
+    public void put(Employee employee) {
+        Long employeeId = employee.getId();
+        IndexedEmployee indexed = new IndexedEmployee(employeeId, employee.getFullName());
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                if (loaded) {
+                    employees.put(employeeId, indexed);
+                    invalidate();
+                }
+            }
+        });
+    }
+
+    public void remove(Long employeeId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                if (loaded && employees.remove(employeeId) != null) {
+                    invalidate();
+                }
+            }
+        });
+    }
+
+    /**
+     * Нормализация для поиска: нижний регистр, ё -> е, все кроме кириллицы заменяется пробелом
+     */
+    public static String normalize(String text) {
+        if (text == null) return "";
+        return text.toLowerCase()
+                .replace("ё", "е")
+                .replaceAll("[^а-яё\\s]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private void invalidate() {
+        snapshot = null;
+    }
+
+    private synchronized Snapshot currentIndex() {
+        if (!loaded) {
+            for (Employee employee : employeeRepository.findAll()) {
+                employees.put(employee.getId(), new IndexedEmployee(employee.getId(), employee.getFullName()));
+            }
+            loaded = true;
+        }
+
+        if (snapshot == null) {
+            long startedAt = System.currentTimeMillis();
+            AhoCorasickMatcher.Builder<NameKey> builder = AhoCorasickMatcher.builder();
+            BkTree<Long> tree = new BkTree<>();
+            for (IndexedEmployee employee : employees.values()) {
+                for (NameKey key : employee.keys) {
+                    builder.add(key.text, key);
+                }
+                tree.add(employee.surname, employee.id);
+            }
+            AhoCorasickMatcher<NameKey> matcher = builder.build();
+            // Снимок неизменяем: следующие изменения создадут новые автомат и дерево
+            snapshot = new Snapshot(matcher, tree, Map.copyOf(employees));
+            logger.info("Индекс ФИО построен: {} сотрудников, {} ключей, {} фамилий за {} мс",
+                    employees.size(), matcher.getPatternCount(), tree.size(),
+                    System.currentTimeMillis() - startedAt);
+        }
+        return snapshot;
+    }
+
+    private static List<NameKey> buildKeys(Long employeeId, String fullName) {
+        List<NameKey> keys = new ArrayList<>(2);
+        if (fullName == null) {
+            return keys;
+        }
+
+        String normalizedFullName = normalize(fullName);
+        if (!normalizedFullName.isEmpty()) {
+            keys.add(new NameKey(employeeId, normalizedFullName, true));
+        }
+
+        String[] nameParts = fullName.split("\\s+");
+        if (nameParts.length >= 2) {
+            String lastNameFirstName = normalize(nameParts[0] + " " + nameParts[1]);
+            if (!lastNameFirstName.isEmpty() && !lastNameFirstName.equals(normalizedFullName)) {
+                keys.add(new NameKey(employeeId, lastNameFirstName, false));
+            }
+        }
+        return keys;
+    }
+
+    private static class Snapshot {
+        private final AhoCorasickMatcher<NameKey> matcher;
+        private final BkTree<Long> surnameTree;
+        private final Map<Long, IndexedEmployee> employees;
+
+        private Snapshot(AhoCorasickMatcher<NameKey> matcher, BkTree<Long> surnameTree,
+                         Map<Long, IndexedEmployee> employees) {
+            this.matcher = matcher;
+            this.surnameTree = surnameTree;
+            this.employees = employees;
+        }
+    }
+
+    private static class IndexedEmployee {
+        private final Long id;
+        private final String fullName;
+        private final String surname;
+        private final List<NameKey> keys;
+
+        private IndexedEmployee(Long id, String fullName) {
+            this.id = id;
+            this.fullName = fullName;
+            this.keys = buildKeys(id, fullName);
+            String normalizedFullName = normalize(fullName);
+            int space = normalizedFullName.indexOf(' ');
+            this.surname = space > 0 ? normalizedFullName.substring(0, space) : normalizedFullName;
+        }
+    }
+
+    private static class NameKey {
+        private final Long employeeId;
+        private final String text;
+        private final boolean fullName;
+
+        private NameKey(Long employeeId, String text, boolean fullName) {
+            this.employeeId = employeeId;
+            this.text = text;
+            this.fullName = fullName;
+        }
+    }
+
+    /**
+     * Кандидат нечеткого поиска по фамилии
+     */
+    public static class SurnameCandidate {
+        private final Long employeeId;
+        private final String fullName;
+        private final String pageWord;
+        private final double score;
+
+        public SurnameCandidate(Long employeeId, String fullName, String pageWord, double score) {
+            this.employeeId = employeeId;
+            this.fullName = fullName;
+            this.pageWord = pageWord;
+            this.score = score;
+        }
+
+        public Long getEmployeeId() { return employeeId; }
+        public String getFullName() { return fullName; }
+        public String getPageWord() { return pageWord; }
+        public double getScore() { return score; }
+    }
+
+    /**
+     * Вхождение ФИО сотрудника в текст страницы
+     */
+    public static class EmployeeMatch {
+        private final Long employeeId;
+        private final int position;
+        private final boolean fullName;
+        private final boolean wordBounded;
+
+        public EmployeeMatch(Long employeeId, int position, boolean fullName, boolean wordBounded) {
+            this.employeeId = employeeId;
+            this.position = position;
+            this.fullName = fullName;
+            this.wordBounded = wordBounded;
+        }
+
+        public Long getEmployeeId() { return employeeId; }
+        public int getPosition() { return position; }
+        public boolean isFullName() { return fullName; }
+        public boolean isWordBounded() { return wordBounded; }
+
+        boolean isBetterThan(EmployeeMatch other) {
+            if (wordBounded != other.wordBounded) {
+                return wordBounded;
+            }
+            if (fullName != other.fullName) {
+                return fullName;
+            }
+            return position < other.position;
+        }
+    }
+}
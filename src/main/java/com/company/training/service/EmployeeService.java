@@ -18,12 +18,21 @@ public class EmployeeService {
     @Autowired
     private DepartmentService departmentService;
 
+    @Autowired
+    private EmployeeNameIndex employeeNameIndex;
+
+    @Autowired
+    private ParsedProtocolCache parsedProtocolCache;
+
     public List<Employee> getEmployeesByDepartment(Long departmentId) {
         return employeeRepository.findByDepartmentIdOrderByFullNameAsc(departmentId);
     }
 
     public Employee createEmployee(Employee employee) {
-        return employeeRepository.save(employee);
+        Employee saved = employeeRepository.save(employee);
+        employeeNameIndex.put(saved);
+        parsedProtocolCache.invalidateAll();
+        return saved;
     }
 
     public void deleteEmployee(Long id) {
@@ -31,6 +40,8 @@ public class EmployeeService {
             throw new RuntimeException("Сотрудник с ID " + id + " не найден");
         }
         employeeRepository.deleteById(id);
+        employeeNameIndex.remove(id);
+        parsedProtocolCache.invalidateAll();
     }
 
     public Employee getEmployeeById(Long id) {
@@ -62,6 +73,9 @@ public class EmployeeService {
         existing.setPosition(employee.getPosition());
         existing.setEmail(employee.getEmail());
 
-        return employeeRepository.save(existing);
+        Employee saved = employeeRepository.save(existing);
+        employeeNameIndex.put(saved);
+        parsedProtocolCache.invalidateAll();
+        return saved;
     }
 }
\ No newline at end of file
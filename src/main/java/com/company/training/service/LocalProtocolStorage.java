@@ -0,0 +1,226 @@
+package com.company.training.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище протоколов на локальном диске: root/ab/cd/ключ.
+ * Запись идет во временный файл root/.tmp с подсчетом SHA-256, после fsync файл
+ * переносится на место атомарным rename - читатели видят либо старую, либо новую версию целиком.
+ * Файлы, сохраненные до разбиения по каталогам (root/ключ), продолжают читаться и удаляться.
+ */
+public class LocalProtocolStorage implements ProtocolStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalProtocolStorage.class);
+
+    private static final String TEMP_DIRECTORY = ".tmp";
+
+    // root/ab/cd/ключ - три уровня от корня
+    private static final int MAX_DEPTH = 3;
+
+    private final Path root;
+    private final Path tempDirectory;
+
+    public LocalProtocolStorage(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        this.tempDirectory = this.root.resolve(TEMP_DIRECTORY);
+        try {
+            Files.createDirectories(this.tempDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать каталог хранилища " + this.root, e);
+        }
+        logger.info("Локальное хранилище протоколов: {}", this.root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public StoredObject store(InputStream content, String extension) throws IOException {
+        String suffix = ProtocolStorage.normalizeExtension(extension);
+        Path tempFile = Files.createTempFile(tempDirectory, "store-", ".tmp");
+        try {
+            Written written = write(content, tempFile);
+            String key = written.sha256 + suffix;
+            // Содержимое могло быть сохранено и до разбиения по каталогам
+            Optional<Path> existing = resolve(key);
+            long replacedSize = existing.map(LocalProtocolStorage::sizeOrAbsent).orElse(StoredObject.ABSENT);
+            Path target;
+            if (replacedSize == written.size) {
+                logger.debug("Содержимое {} уже есть в хранилище", key);
+                target = existing.get();
+                // Файл снова нужен: свежая дата защищает его от сборщика, пока новая запись не закоммичена
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            } else {
+                target = shardedPath(key);
+                publish(tempFile, target);
+                Files.deleteIfExists(root.resolve(key));
+            }
+            return new StoredObject(key, written.size, Files.getLastModifiedTime(target).toMillis(), written.sha256,
+                    replacedSize);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public StoredObject put(String key, InputStream content) throws IOException {
+        ProtocolStorage.checkKey(key);
+        Path tempFile = Files.createTempFile(tempDirectory, "put-", ".tmp");
+        try {
+            Written written = write(content, tempFile);
+            if (ProtocolStorage.isContentKey(key) && !key.startsWith(written.sha256)) {
+                throw new IOException("Контрольная сумма не совпадает с ключом " + key);
+            }
+            Path target = shardedPath(key);
+            long replacedSize = resolve(key).map(LocalProtocolStorage::sizeOrAbsent).orElse(StoredObject.ABSENT);
+            publish(tempFile, target);
+            // Старая копия в корне иначе всплывала бы при обходе хранилища
+            Files.deleteIfExists(root.resolve(key));
+            return new StoredObject(key, written.size, Files.getLastModifiedTime(target).toMillis(), written.sha256,
+                    replacedSize);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path file = resolve(key).orElseThrow(() -> new NoSuchFileException(key));
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        Path file = resolve(key).orElseThrow(() -> new NoSuchFileException(key));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(offset);
+        return Channels.newInputStream(channel);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        Optional<Path> file = resolve(key);
+        if (file.isEmpty()) {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file.get(), BasicFileAttributes.class);
+        return Optional.of(new StoredObject(key, attributes.size(), attributes.lastModifiedTime().toMillis(), null));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        ProtocolStorage.checkKey(key);
+        boolean deleted = Files.deleteIfExists(shardedPath(key));
+        return Files.deleteIfExists(root.resolve(key)) || deleted;
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return resolve(key);
+    }
+
+    @Override
+    public void forEach(Consumer<StoredObject> action) throws IOException {
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), MAX_DEPTH,
+                new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        return dir.equals(tempDirectory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile()) {
+                            action.accept(new StoredObject(file.getFileName().toString(), attrs.size(),
+                                    attrs.lastModifiedTime().toMillis(), null));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        // Файл удалили во время обхода
+                        logger.debug("Пропущен файл хранилища {}: {}", file, exc.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    Path shardedPath(String key) {
+        return root.resolve(ProtocolStorage.shardPrefix(key)).resolve(key);
+    }
+
+    private Optional<Path> resolve(String key) {
+        ProtocolStorage.checkKey(key);
+        Path sharded = shardedPath(key);
+        if (Files.isRegularFile(sharded)) {
+            return Optional.of(sharded);
+        }
+        Path legacy = root.resolve(key);
+        return Files.isRegularFile(legacy) ? Optional.of(legacy) : Optional.empty();
+    }
+
+    private static Written write(InputStream content, Path tempFile) throws IOException {
+        MessageDigest digest = ProtocolStorage.newSha256();
+        long size;
+        try (InputStream in = new DigestInputStream(content, digest);
+             FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            size = in.transferTo(out);
+            // Данные должны быть на диске до rename, иначе после сбоя питания
+            // под верным именем может оказаться пустой файл
+            channel.force(true);
+        }
+        return new Written(HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    private static long sizeOrAbsent(Path file) {
+        try {
+            return Files.isRegularFile(file) ? Files.size(file) : StoredObject.ABSENT;
+        } catch (IOException e) {
+            return StoredObject.ABSENT;
+        }
+    }
+
+    private static void publish(Path tempFile, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static class Written {
+        private final String sha256;
+        private final long size;
+
+        Written(String sha256, long size) {
+            this.sha256 = sha256;
+            this.size = size;
+        }
+    }
+}
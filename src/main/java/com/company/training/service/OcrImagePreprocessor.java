@@ -0,0 +1,115 @@
+package com.company.training.service;
+
+import net.sourceforge.tess4j.util.ImageDeskew;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+
+/**
+ * Подготовка изображения страницы к OCR: рендеринг в оттенках серого,
+ * выравнивание наклона скана и обрезка полей до области с текстом.
+ * Серое изображение занимает байт на пиксель вместо четырех у ARGB,
+ * а обрезка полей уменьшает площадь, которую анализирует Tesseract.
+ */
+@Component
+public class OcrImagePreprocessor {
+
+    // Наклон меньше этого угла (в градусах) не исправляем
+    private static final double MIN_DESKEW_ANGLE = 0.3;
+
+    // Яркость, ниже которой пиксель считается содержимым
+    private static final int CONTENT_THRESHOLD = 160;
+
+    // Поля вокруг найденной области с текстом, в долях дюйма
+    private static final double CROP_MARGIN_INCH = 0.1;
+
+    public BufferedImage render(PDFRenderer renderer, int pageIndex, int dpi) throws IOException {
+        return renderer.renderImageWithDPI(pageIndex, dpi, ImageType.GRAY);
+    }
+
+    /**
+     * Выравнивание и обрезка. Возвращает новое изображение, исходное можно освобождать
+     */
+    public BufferedImage prepare(BufferedImage image, int dpi) {
+        return cropToContent(deskew(image), (int) Math.round(dpi * CROP_MARGIN_INCH));
+    }
+
+    BufferedImage deskew(BufferedImage image) {
+        double angle = new ImageDeskew(image).getSkewAngle();
+        if (Math.abs(angle) < MIN_DESKEW_ANGLE) {
+            return image;
+        }
+
+        BufferedImage rotated = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = rotated.createGraphics();
+        try {
+            // Углы, открывшиеся после поворота, заливаем белым, чтобы они не попали в область текста
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, rotated.getWidth(), rotated.getHeight());
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.rotate(Math.toRadians(-angle), image.getWidth() / 2.0, image.getHeight() / 2.0);
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+
+    BufferedImage cropToContent(BufferedImage image, int margin) {
+        Raster raster = image.getRaster();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+
+        int top = -1;
+        int bottom = -1;
+        int left = width;
+        int right = -1;
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            int first = -1;
+            int last = -1;
+            for (int x = 0; x < width; x++) {
+                if (row[x] < CONTENT_THRESHOLD) {
+                    if (first < 0) {
+                        first = x;
+                    }
+                    last = x;
+                }
+            }
+            if (first >= 0) {
+                if (top < 0) {
+                    top = y;
+                }
+                bottom = y;
+                left = Math.min(left, first);
+                right = Math.max(right, last);
+            }
+        }
+
+        // Пустая страница - отдаем как есть, Tesseract вернет пустой текст
+        if (top < 0) {
+            return image;
+        }
+
+        int x0 = Math.max(0, left - margin);
+        int y0 = Math.max(0, top - margin);
+        int x1 = Math.min(width, right + margin + 1);
+        int y1 = Math.min(height, bottom + margin + 1);
+        if (x0 == 0 && y0 == 0 && x1 == width && y1 == height) {
+            return image;
+        }
+
+        // Копируем область, чтобы не держать в памяти исходный растр целиком
+        BufferedImage cropped = new BufferedImage(x1 - x0, y1 - y0, BufferedImage.TYPE_BYTE_GRAY);
+        cropped.getRaster().setRect(raster.createChild(x0, y0, x1 - x0, y1 - y0, 0, 0, null));
+        return cropped;
+    }
+}
@@ -0,0 +1,135 @@
+package com.company.training.service;
+
+import com.company.training.entity.PdfDocument;
+import com.company.training.repository.PdfDocumentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновая очередь OCR. Очередью служит сам статус PdfDocument:
+ * PENDING - ждет обработки, PROCESSING - захвачен обработчиком.
+ * Документ захватывается атомарным UPDATE, поэтому повторный запрос
+ * или обновление страницы не запускает второй OCR того же файла.
+ */
+@Service
+public class OcrJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrJobService.class);
+
+    @Autowired
+    private PdfDocumentRepository pdfDocumentRepository;
+
+    @Autowired
+    private PdfProcessingService pdfProcessingService;
+
+    private final int maxConcurrentJobs;
+    private final ExecutorService jobExecutor;
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready = false;
+
+    public OcrJobService(@Value("${ocr.jobs.concurrency:2}") int maxConcurrentJobs) {
+        this.maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.jobExecutor = Executors.newFixedThreadPool(this.maxConcurrentJobs, runnable -> {
+            Thread thread = new Thread(runnable, "ocr-job-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * После рестарта документы в статусе PROCESSING никем не обрабатываются -
+     * возвращаем их в очередь, чтобы обработка продолжилась
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        int resumed = pdfDocumentRepository.updateStatusForAll(
+                PdfDocument.ProcessingStatus.PROCESSING, PdfDocument.ProcessingStatus.PENDING);
+        if (resumed > 0) {
+            logger.info("Возвращено в очередь OCR после перезапуска: {} документов", resumed);
+        }
+        ready = true;
+        pollQueue();
+    }
+
+    /**
+     * Забирает ожидающие документы, пока есть свободные обработчики
+     */
+    @Scheduled(fixedDelayString = "${ocr.jobs.poll-interval-ms:5000}")
+    public synchronized void pollQueue() {
+        if (!ready || activeJobs.size() >= maxConcurrentJobs) {
+            return;
+        }
+
+        List<PdfDocument> pending = pdfDocumentRepository.findByStatusOrderByUploadedAtAsc(
+                PdfDocument.ProcessingStatus.PENDING);
+
+        for (PdfDocument document : pending) {
+            if (activeJobs.size() >= maxConcurrentJobs) {
+                break;
+            }
+
+            Long documentId = document.getId();
+            int claimed = pdfDocumentRepository.updateStatusIfCurrent(documentId,
+                    PdfDocument.ProcessingStatus.PENDING, PdfDocument.ProcessingStatus.PROCESSING);
+            if (claimed == 0) {
+                continue;
+            }
+
+            activeJobs.add(documentId);
+            jobExecutor.submit(() -> runJob(documentId));
+            logger.info("OCR документа {} поставлен в работу", documentId);
+        }
+    }
+
+    /**
+     * Ставит документ в очередь (новая загрузка или повтор после ошибки)
+     */
+    public void enqueue(Long pdfDocumentId) {
+        PdfDocument document = pdfProcessingService.getPdfDocumentById(pdfDocumentId);
+
+        if (document.getStatus() == PdfDocument.ProcessingStatus.ERROR) {
+            pdfDocumentRepository.updateStatusIfCurrent(pdfDocumentId,
+                    PdfDocument.ProcessingStatus.ERROR, PdfDocument.ProcessingStatus.PENDING);
+        }
+
+        pollQueue();
+    }
+
+    public boolean isJobActive(Long pdfDocumentId) {
+        return activeJobs.contains(pdfDocumentId);
+    }
+
+    private void runJob(Long documentId) {
+        try {
+            pdfProcessingService.processOcr(documentId);
+            logger.info("OCR документа {} завершен", documentId);
+        } catch (Exception e) {
+            // Статус ERROR и текст ошибки уже сохранены в processOcr
+            logger.error("Ошибка фонового OCR документа {}: {}", documentId, e.getMessage(), e);
+        } finally {
+            activeJobs.remove(documentId);
+        }
+        pollQueue();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,592 @@
+package com.company.training.service;
+
+import com.company.training.entity.PdfPageOcr;
+import jakarta.annotation.PreDestroy;
+import net.sourceforge.tess4j.Word;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Постраничное OCR распознавание PDF.
+ * Потоки OCR берут движки Tesseract из TesseractEnginePool на время распознавания страницы:
+ * пул движков и ограничивает общее число одновременных распознаваний, а страницы разных
+ * документов чередуются за движками. Рендеринг и предобработка страниц идут в отдельных
+ * стадиях конвейера (см. PagePipeline).
+ * Перед рендерингом для страницы считается хеш содержимого: если такая страница
+ * уже распознавалась, результат берется из кеша без OCR. Страницы с пригодным
+ * текстовым слоем также не рендерятся - текст берется из PDF напрямую.
+ */
+@Service
+public class ParallelOcrService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelOcrService.class);
+
+    private final int workerCount;
+    private final int initialDpi;
+    private final int retryDpi;
+    private final float minConfidence;
+    private final int queueCapacity;
+    private final int preprocessThreads;
+    private final ExecutorService stageExecutor;
+
+    @Autowired
+    private TextLayerDetector textLayerDetector;
+
+    @Autowired
+    private OcrImagePreprocessor imagePreprocessor;
+
+    @Autowired
+    private TesseractEnginePool enginePool;
+
+    public ParallelOcrService(@Value("${ocr.worker.threads:0}") int configuredThreads,
+                              @Value("${ocr.render.initial-dpi:300}") int initialDpi,
+                              @Value("${ocr.render.retry-dpi:400}") int retryDpi,
+                              @Value("${ocr.render.min-confidence:70}") float minConfidence,
+                              @Value("${ocr.pipeline.queue-capacity:2}") int queueCapacity,
+                              @Value("${ocr.pipeline.preprocess-threads:2}") int preprocessThreads) {
+        this.workerCount = configuredThreads > 0
+                ? configuredThreads
+                : Runtime.getRuntime().availableProcessors();
+        this.initialDpi = initialDpi;
+        this.retryDpi = retryDpi;
+        this.minConfidence = minConfidence;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.preprocessThreads = Math.max(1, preprocessThreads);
+
+        // Потоки стадий создаются на время обработки документа: у каждого документа свои
+        // потоки рендеринга, предобработки и OCR (не больше workerCount), и документ
+        // не ждет, пока другой документ освободит общий пул потоков
+        AtomicInteger stageCounter = new AtomicInteger();
+        this.stageExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ocr-stage-" + stageCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("OCR инициализирован: до {} потоков распознавания на документ", workerCount);
+    }
+
+    /**
+     * Число страниц в PDF
+     */
+    public int countPages(File pdfFile) throws Exception {
+        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    /**
+     * Распознает указанные страницы PDF (номера с 1).
+     * Результат каждой страницы передается в pageListener сразу после ее распознавания,
+     * из потока конвейера. Ошибка отдельной страницы не останавливает остальные -
+     * она передается слушателю как неуспешный результат.
+     */
+    public void recognizePages(File pdfFile, List<Integer> pageNumbers, PageCache pageCache,
+                               Consumer<PageOcrResult> pageListener) throws Exception {
+        if (pageNumbers.isEmpty()) {
+            return;
+        }
+        new PagePipeline(pdfFile, pageNumbers, pageCache, pageListener).run();
+    }
+
+    /**
+     * Страница, которую можно обработать без OCR: текстовый слой или ранее распознанная копия.
+     * Возвращает null, если страницу нужно рендерить
+     */
+    private PageOcrResult resolveWithoutOcr(PDDocument document, PageTask task, PageCache pageCache) {
+        int pageNumber = task.pageNumber;
+        try {
+            String layerText = textLayerDetector.extractText(document, pageNumber);
+            if (layerText != null) {
+                logger.info("Страница {}: используется текстовый слой PDF, OCR пропущен", pageNumber);
+                return PageOcrResult.fromTextLayer(pageNumber, task.pageHash, layerText,
+                        System.currentTimeMillis() - task.startedAt);
+            }
+        } catch (Exception e) {
+            logger.warn("Не удалось извлечь текстовый слой страницы {}: {}", pageNumber, e.getMessage());
+        }
+
+        if (task.pageHash != null) {
+            PageOcrResult cached = pageCache.lookup(pageNumber, task.pageHash);
+            if (cached != null) {
+                logger.info("Страница {} уже распознавалась ранее, OCR пропущен", pageNumber);
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * SHA-256 содержимого страницы: размеры, поворот, поток контента и исходные
+     * (сжатые) данные изображений и форм, в том числе вложенных в формы.
+     * Для сканов это фактически хеш картинки страницы
+     */
+    static String computePageHash(PDPage page) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+
+        PDRectangle mediaBox = page.getMediaBox();
+        digest.update((mediaBox.getWidth() + "x" + mediaBox.getHeight() + "@" + page.getRotation())
+                .getBytes(StandardCharsets.US_ASCII));
+
+        byte[] buffer = new byte[8192];
+        try (InputStream contents = page.getContents()) {
+            updateDigest(digest, contents, buffer);
+        }
+
+        updateDigest(digest, page.getResources(), buffer, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * XObject-ы ресурсов, включая вложенные в формы: страницы, отличающиеся только
+     * содержимым формы внутри формы, не должны получить одинаковый хеш
+     */
+    private static void updateDigest(MessageDigest digest, PDResources resources, byte[] buffer,
+                                     Set<COSBase> visited) throws IOException {
+        if (resources == null) {
+            return;
+        }
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xObject = resources.getXObject(name);
+            if (xObject == null) {
+                continue;
+            }
+            digest.update(name.getName().getBytes(StandardCharsets.UTF_8));
+            // Одна форма может использоваться несколько раз и даже ссылаться на саму себя
+            if (!visited.add(xObject.getCOSObject())) {
+                digest.update((byte) 0);
+                continue;
+            }
+            try (InputStream raw = xObject.getCOSObject().createRawInputStream()) {
+                updateDigest(digest, raw, buffer);
+            }
+            if (xObject instanceof PDFormXObject form) {
+                updateDigest(digest, form.getResources(), buffer, visited);
+            }
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, InputStream inputStream, byte[] buffer) throws IOException {
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private RecognizedText recognizeImage(BufferedImage image, int dpi) throws Exception {
+        // Распознаем построчно: один проход дает и текст, и уверенность по строкам
+        List<Word> lines;
+        TesseractEnginePool.Engine engine = enginePool.acquire();
+        try {
+            lines = engine.recognizeLines(image, dpi);
+        } finally {
+            enginePool.release(engine);
+        }
+
+        StringBuilder text = new StringBuilder();
+        double weightedConfidence = 0;
+        int totalLength = 0;
+        for (Word line : lines) {
+            String lineText = line.getText();
+            text.append(lineText);
+            if (!lineText.endsWith("\n")) {
+                text.append('\n');
+            }
+            int length = lineText.trim().length();
+            weightedConfidence += line.getConfidence() * length;
+            totalLength += length;
+        }
+        float confidence = totalLength > 0 ? (float) (weightedConfidence / totalLength) : 0f;
+        return new RecognizedText(text.toString(), confidence);
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stageExecutor.shutdownNow();
+    }
+
+    /**
+     * Конвейер обработки одного документа:
+     * рендеринг -> предобработка -> OCR, стадии связаны ограниченными очередями.
+     * Стадия, которой некуда положить результат, ждет, поэтому в памяти одновременно
+     * находится не больше (2 * queueCapacity + число потоков) изображений страниц
+     * независимо от размера документа. Страницы с низкой уверенностью возвращаются
+     * из стадии OCR на повторный рендеринг с большим DPI.
+     */
+    private class PagePipeline {
+
+        private static final long POLL_TIMEOUT_MS = 200;
+
+        private final File pdfFile;
+        private final List<Integer> pageNumbers;
+        private final PageCache pageCache;
+        private final Consumer<PageOcrResult> pageListener;
+
+        private final BlockingQueue<PageTask> renderedPages = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<PageTask> preparedPages = new ArrayBlockingQueue<>(queueCapacity);
+        // Запросы повторного рендеринга не содержат изображений, поэтому очередь не ограничена
+        private final BlockingQueue<PageTask> retryRequests = new LinkedBlockingQueue<>();
+
+        private final AtomicInteger remainingPages;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final Object stageLock = new Object();
+        private int activeStages = 0;
+        private volatile boolean stopped = false;
+
+        private PagePipeline(File pdfFile, List<Integer> pageNumbers, PageCache pageCache,
+                             Consumer<PageOcrResult> pageListener) {
+            this.pdfFile = pdfFile;
+            this.pageNumbers = pageNumbers;
+            this.pageCache = pageCache;
+            this.pageListener = pageListener;
+            this.remainingPages = new AtomicInteger(pageNumbers.size());
+        }
+
+        void run() throws Exception {
+            List<Future<?>> stages = new ArrayList<>();
+            stages.add(stageExecutor.submit(() -> runStage(this::renderStage)));
+            for (int i = 0; i < preprocessThreads; i++) {
+                stages.add(stageExecutor.submit(() -> runStage(this::preprocessStage)));
+            }
+            int ocrTasks = Math.min(workerCount, pageNumbers.size());
+            for (int i = 0; i < ocrTasks; i++) {
+                stages.add(stageExecutor.submit(() -> runStage(this::ocrStage)));
+            }
+
+            try {
+                completed.await();
+            } catch (InterruptedException e) {
+                // Прерывание тоже останавливает все стадии: документ для вызывающего уже закончен,
+                // и слушатель не должен получать страницы после возврата из метода
+                stopStages(stages, true);
+                throw e;
+            }
+            stopStages(stages, false);
+
+            Exception error = failure.get();
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        /**
+         * Останавливает конвейер: не начавшие работу стадии не запускаются, работающие
+         * заканчивают текущую страницу (вызов Tesseract прервать нельзя), и метод дожидается их
+         */
+        private void stopStages(List<Future<?>> stages, boolean interrupt) {
+            boolean interrupted = false;
+            synchronized (stageLock) {
+                stopped = true;
+                stages.forEach(stage -> stage.cancel(interrupt));
+                while (activeStages > 0) {
+                    try {
+                        stageLock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void renderStage() throws Exception {
+            try (PDDocument document = Loader.loadPDF(pdfFile)) {
+                PDFRenderer renderer = new PDFRenderer(document);
+                int nextIndex = 0;
+
+                while (!stopped) {
+                    // Повторный рендеринг в приоритете: эти страницы уже почти готовы
+                    PageTask task = retryRequests.poll();
+                    if (task == null && nextIndex < pageNumbers.size()) {
+                        int pageNumber = pageNumbers.get(nextIndex++);
+                        logger.info("Обработка страницы {} из {}", pageNumber, document.getNumberOfPages());
+                        task = new PageTask(pageNumber, initialDpi);
+                        try {
+                            task.pageHash = computePageHash(document.getPage(pageNumber - 1));
+                        } catch (Exception e) {
+                            // Без хеша страница просто не попадет в кеш
+                            logger.warn("Не удалось вычислить хеш страницы {}: {}", pageNumber, e.getMessage());
+                        }
+                        PageOcrResult resolved = resolveWithoutOcr(document, task, pageCache);
+                        if (resolved != null) {
+                            complete(resolved);
+                            continue;
+                        }
+                    } else if (task == null) {
+                        task = retryRequests.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                        if (task == null) {
+                            continue;
+                        }
+                    }
+
+                    try {
+                        task.image = imagePreprocessor.render(renderer, task.pageNumber - 1, task.dpi);
+                    } catch (Exception e) {
+                        completeWithError(task, e);
+                        continue;
+                    }
+                    put(renderedPages, task);
+                }
+            }
+        }
+
+        private void preprocessStage() throws Exception {
+            while (!stopped) {
+                PageTask task = renderedPages.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+                try {
+                    task.image = imagePreprocessor.prepare(task.image, task.dpi);
+                } catch (Exception e) {
+                    task.image = null;
+                    completeWithError(task, e);
+                    continue;
+                }
+                put(preparedPages, task);
+            }
+        }
+
+        private void ocrStage() throws Exception {
+            while (!stopped) {
+                PageTask task = preparedPages.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+
+                BufferedImage image = task.image;
+                task.image = null;
+                RecognizedText result;
+                try {
+                    result = recognizeImage(image, task.dpi);
+                } catch (Exception e) {
+                    completeWithError(task, e);
+                    continue;
+                }
+
+                if (task.previous != null) {
+                    // Повторное распознавание: оставляем лучший из двух результатов
+                    if (task.previous.confidence >= result.confidence) {
+                        result = task.previous;
+                    }
+                } else if (result.confidence < minConfidence && retryDpi > initialDpi) {
+                    logger.info("Страница {}: уверенность {} при {} DPI, повтор на {} DPI",
+                            task.pageNumber, Math.round(result.confidence), task.dpi, retryDpi);
+                    task.previous = result;
+                    task.dpi = retryDpi;
+                    retryRequests.add(task);
+                    continue;
+                }
+
+                complete(PageOcrResult.success(task.pageNumber, task.pageHash, result.text, result.confidence,
+                        System.currentTimeMillis() - task.startedAt));
+            }
+        }
+
+        private void put(BlockingQueue<PageTask> queue, PageTask task) throws InterruptedException {
+            while (!stopped) {
+                if (queue.offer(task, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+
+        private void completeWithError(PageTask task, Exception e) {
+            if (task.previous != null) {
+                // Повтор не удался - первый результат все равно годится
+                logger.warn("Повторное распознавание страницы {} не удалось: {}", task.pageNumber, e.getMessage());
+                complete(PageOcrResult.success(task.pageNumber, task.pageHash, task.previous.text,
+                        task.previous.confidence, System.currentTimeMillis() - task.startedAt));
+                return;
+            }
+            logger.error("Ошибка OCR страницы {}: {}", task.pageNumber, e.getMessage(), e);
+            complete(PageOcrResult.failure(task.pageNumber, e.getMessage(),
+                    System.currentTimeMillis() - task.startedAt));
+        }
+
+        private void complete(PageOcrResult result) {
+            if (stopped) {
+                // Обработка документа уже прервана: страница, на которой стадию застала остановка,
+                // не должна сохраниться как ошибочная
+                return;
+            }
+            pageListener.accept(result);
+            if (remainingPages.decrementAndGet() == 0) {
+                completed.countDown();
+            }
+        }
+
+        private void runStage(Stage stage) {
+            synchronized (stageLock) {
+                if (stopped) {
+                    return;
+                }
+                activeStages++;
+            }
+            try {
+                stage.run();
+            } catch (Throwable e) {
+                // Документ не открылся или слушатель не смог сохранить результат - прерываем всю обработку
+                failure.compareAndSet(null, e instanceof Exception ? (Exception) e : new RuntimeException(e));
+                stopped = true;
+                completed.countDown();
+            } finally {
+                synchronized (stageLock) {
+                    activeStages--;
+                    stageLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * Страница в конвейере. Изображение передается между стадиями и обнуляется
+     * сразу после распознавания, чтобы память освобождалась без ожидания конца документа
+     */
+    private static class PageTask {
+        private final int pageNumber;
+        private final long startedAt = System.currentTimeMillis();
+        private String pageHash;
+        private int dpi;
+        private BufferedImage image;
+        private RecognizedText previous;
+
+        private PageTask(int pageNumber, int dpi) {
+            this.pageNumber = pageNumber;
+            this.dpi = dpi;
+        }
+    }
+
+    private static class RecognizedText {
+        private final String text;
+        private final float confidence;
+
+        private RecognizedText(String text, float confidence) {
+            this.text = text;
+            this.confidence = confidence;
+        }
+    }
+
+    /**
+     * Поиск готового результата по хешу страницы. Возвращает null, если страница не встречалась
+     */
+    @FunctionalInterface
+    public interface PageCache {
+        PageOcrResult lookup(int pageNumber, String pageHash);
+    }
+
+    /**
+     * Результат распознавания одной страницы
+     */
+    public static class PageOcrResult {
+        private final int pageNumber;
+        private final String pageHash;
+        private final String text;
+        private final float confidence;
+        private final long durationMs;
+        private final String error;
+        private final PdfPageOcr.PageSource source;
+
+        private PageOcrResult(int pageNumber, String pageHash, String text, float confidence,
+                              long durationMs, String error, PdfPageOcr.PageSource source) {
+            this.pageNumber = pageNumber;
+            this.pageHash = pageHash;
+            this.text = text;
+            this.confidence = confidence;
+            this.durationMs = durationMs;
+            this.error = error;
+            this.source = source;
+        }
+
+        public static PageOcrResult success(int pageNumber, String pageHash, String text,
+                                            float confidence, long durationMs) {
+            return new PageOcrResult(pageNumber, pageHash, text, confidence, durationMs, null,
+                    PdfPageOcr.PageSource.OCR);
+        }
+
+        public static PageOcrResult fromTextLayer(int pageNumber, String pageHash, String text, long durationMs) {
+            return new PageOcrResult(pageNumber, pageHash, text, 100f, durationMs, null,
+                    PdfPageOcr.PageSource.TEXT_LAYER);
+        }
+
+        public static PageOcrResult cached(int pageNumber, String pageHash, String text, float confidence) {
+            return new PageOcrResult(pageNumber, pageHash, text, confidence, 0, null,
+                    PdfPageOcr.PageSource.CACHE);
+        }
+
+        public static PageOcrResult failure(int pageNumber, String error, long durationMs) {
+            return new PageOcrResult(pageNumber, null, null, 0f, durationMs,
+                    error != null ? error : "Неизвестная ошибка", null);
+        }
+
+        public int getPageNumber() { return pageNumber; }
+        public String getPageHash() { return pageHash; }
+        public String getText() { return text; }
+        public float getConfidence() { return confidence; }
+        public long getDurationMs() { return durationMs; }
+        public String getError() { return error; }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public PdfPageOcr.PageSource getSource() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.company.training.service;
+
+import com.company.training.dto.ParsedProtocolRecord;
+import com.company.training.entity.PdfDocument;
+import com.company.training.entity.ParsedProtocolResult;
+import com.company.training.repository.ParsedProtocolResultRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Хранилище результатов парсинга протоколов в таблице parsed_protocol_results.
+ * Результат привязан к документу и хешу его OCR текста: после повторного
+ * распознавания хеш не совпадет и документ будет разобран заново.
+ * Изменение сотрудников, отделов и направлений меняет результат парсинга
+ * любого документа, поэтому в этом случае удаляются все сохраненные результаты.
+ * Парсинг, начатый до такого изменения, мог прочитать старые справочники и сохранить
+ * результат уже после удаления - поэтому результат помечается поколением справочников,
+ * прочитанным до парсинга, и действителен только при совпадении с текущим.
+ */
+@Component
+public class ParsedProtocolCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParsedProtocolCache.class);
+
+    private static final TypeReference<List<ParsedProtocolRecord>> RECORDS_TYPE = new TypeReference<>() {};
+
+    @Autowired
+    private ParsedProtocolResultRepository parsedProtocolResultRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Поколение справочников: растет после коммита каждого их изменения.
+    // Начинается со времени запуска, поэтому результаты прошлого запуска (их поколению
+    // нельзя доверять) разбираются заново один раз
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Текущее поколение справочников: читается до парсинга и передается в put
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Сохраненные записи документа, если они получены из текущего OCR текста
+     */
+    public Optional<List<ParsedProtocolRecord>> get(PdfDocument document) {
+        Optional<ParsedProtocolResult> stored = parsedProtocolResultRepository.findByPdfDocumentId(document.getId());
+        if (stored.isEmpty() || !stored.get().getOcrTextHash().equals(hash(document.getOcrText()))
+                || !Long.valueOf(generation.get()).equals(stored.get().getReferenceGeneration())) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(stored.get().getRecordsJson(), RECORDS_TYPE));
+        } catch (JsonProcessingException e) {
+            // Например, после изменения формата записей - просто разберем документ заново
+            logger.warn("Не удалось прочитать сохраненный парсинг документа {}: {}", document.getId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Сохранить результат парсинга, выполненного при поколении справочников parsedGeneration.
+     * Если справочники с тех пор изменились, результат устарел и не сохраняется
+     */
+    public void put(PdfDocument document, List<ParsedProtocolRecord> records, long parsedGeneration) {
+        if (generation.get() != parsedGeneration) {
+            logger.debug("Справочники изменились во время парсинга документа {}, результат не сохраняется",
+                    document.getId());
+            return;
+        }
+        ParsedProtocolResult result = parsedProtocolResultRepository.findByPdfDocumentId(document.getId())
+                .orElseGet(() -> new ParsedProtocolResult(document.getId()));
+        try {
+            result.setOcrTextHash(hash(document.getOcrText()));
+            result.setRecordsJson(objectMapper.writeValueAsString(records));
+            result.setReferenceGeneration(parsedGeneration);
+            result.setRecordCount(records.size());
+            parsedProtocolResultRepository.save(result);
+        } catch (JsonProcessingException e) {
+            logger.warn("Не удалось сохранить парсинг документа {}: {}", document.getId(), e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            // Параллельный запрос уже сохранил результат для того же документа
+            logger.debug("Парсинг документа {} уже сохранен другим запросом", document.getId());
+        }
+    }
+
+    /**
+     * Удалить все сохраненные результаты. Вызывается в транзакции изменения
+     * справочников, поэтому откатывается вместе с ней; поколение меняется после коммита
+     */
+    public void invalidateAll() {
+        TransactionHooks.afterCommit(generation::incrementAndGet);
+        int deleted = parsedProtocolResultRepository.deleteAllResults();
+        if (deleted > 0) {
+            logger.info("Сброшено сохраненных результатов парсинга: {}", deleted);
+        }
+    }
+
+    private static String hash(String ocrText) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(ocrText.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
@@ -2,50 +2,53 @@ package com.company.training.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 public class ParsingDebugService {
 
     private static final Logger logger = LoggerFactory.getLogger(ParsingDebugService.class);
 
+    @Autowired
+    private ProtocolPageLexer protocolPageLexer;
+
     /**
      * Детальный анализ страницы для отладки
      */
     public void analyzePage(String pageText, int pageNumber) {
         logger.info("\n\n=== ДЕТАЛЬНЫЙ АНАЛИЗ СТРАНИЦЫ {} ===", pageNumber);
 
-        // 1. Ищем все возможные ФИО
-        List<String> foundNames = findPossibleNames(pageText);
+        ProtocolPageLexer.PageTokens pageTokens = protocolPageLexer.tokenize(pageText);
+
+        // 1. Ищем все возможные ФИО (3 слова с заглавной буквы)
+        List<ProtocolPageLexer.Token> foundNames = pageTokens.names(3, 3);
         logger.info("Найдено возможных ФИО: {}", foundNames.size());
         for (int i = 0; i < Math.min(foundNames.size(), 5); i++) {
-            logger.info("  ФИО {}: {}", i + 1, foundNames.get(i));
+            logger.info("  ФИО {}: {}", i + 1, foundNames.get(i).getText());
         }
 
         // 2. Ищем все даты
-        List<String> foundDates = findDates(pageText);
+        List<ProtocolPageLexer.Token> foundDates = pageTokens.ofType(ProtocolPageLexer.TokenType.DATE);
         logger.info("Найдено дат: {}", foundDates.size());
-        for (String date : foundDates) {
-            logger.info("  Дата: {}", date);
+        for (ProtocolPageLexer.Token date : foundDates) {
+            logger.info("  Дата: {}", date.getText());
         }
 
         // 3. Ищем номера протоколов
-        List<String> foundNumbers = findProtocolNumbers(pageText);
+        List<ProtocolPageLexer.Token> foundNumbers = pageTokens.numbers(6, 12);
         logger.info("Найдено номеров протоколов: {}", foundNumbers.size());
-        for (String number : foundNumbers) {
-            logger.info("  Номер: {}", number);
+        for (ProtocolPageLexer.Token number : foundNumbers) {
+            logger.info("  Номер: {}", number.getText());
         }
 
         // 4. Ищем ключевые слова программ
-        logProgramKeywords(pageText);
+        logProgramKeywords(pageTokens);
 
         // 5. Логирование извлеченных точных ФИО
-        logExtractedExactNames(pageText);
+        logExtractedExactNames(pageTokens);
 
         logger.info("=== КОНЕЦ АНАЛИЗА СТРАНИЦЫ {} ===\n", pageNumber);
     }
@@ -54,102 +57,35 @@ public class ParsingDebugService {
      * Логирование извлеченных точных ФИО из текста
      */
     public void logExtractedExactNames(String pageText) {
-        logger.info("=== ИЗВЛЕЧЕНИЕ ТОЧНЫХ ФИО ===");
-
-        // Паттерн для полного ФИО
-        Pattern fullNamePattern = Pattern.compile("\\b[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+\\b");
-        // Паттерн для Фамилия + Имя
-        Pattern lastNameFirstNamePattern = Pattern.compile("\\b[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+\\b");
+        logExtractedExactNames(protocolPageLexer.tokenize(pageText));
+    }
 
-        List<String> fullNames = new ArrayList<>();
-        Matcher fullNameMatcher = fullNamePattern.matcher(pageText);
-        while (fullNameMatcher.find()) {
-            fullNames.add(fullNameMatcher.group());
-        }
+    private void logExtractedExactNames(ProtocolPageLexer.PageTokens pageTokens) {
+        logger.info("=== ИЗВЛЕЧЕНИЕ ТОЧНЫХ ФИО ===");
 
-        List<String> lastNameFirstNames = new ArrayList<>();
-        Matcher lastNameFirstNameMatcher = lastNameFirstNamePattern.matcher(pageText);
-        while (lastNameFirstNameMatcher.find()) {
-            lastNameFirstNames.add(lastNameFirstNameMatcher.group());
-        }
+        List<ProtocolPageLexer.Token> fullNames = pageTokens.names(3, 3);
+        List<ProtocolPageLexer.Token> lastNameFirstNames = pageTokens.names(2, 2);
 
         logger.info("Найдено полных ФИО: {}", fullNames.size());
-        for (String name : fullNames) {
-            logger.info("  - {}", name);
+        for (ProtocolPageLexer.Token name : fullNames) {
+            logger.info("  - {}", name.getText());
         }
 
         logger.info("Найдено Фамилия+Имя: {}", lastNameFirstNames.size());
-        for (String name : lastNameFirstNames) {
-            logger.info("  - {}", name);
+        for (ProtocolPageLexer.Token name : lastNameFirstNames) {
+            logger.info("  - {}", name.getText());
         }
 
         logger.info("=== КОНЕЦ ИЗВЛЕЧЕНИЯ ФИО ===");
     }
 
-    /**
-     * Поиск возможных ФИО в тексте
-     */
-    private List<String> findPossibleNames(String text) {
-        List<String> names = new ArrayList<>();
-
-        // Паттерн для ФИО (3 слова с заглавной буквы)
-        Pattern namePattern = Pattern.compile("[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+");
-        Matcher matcher = namePattern.matcher(text);
-
-        while (matcher.find()) {
-            names.add(matcher.group());
-        }
-
-        return names;
-    }
-
-    /**
-     * Поиск дат в тексте
-     */
-    private List<String> findDates(String text) {
-        List<String> dates = new ArrayList<>();
-        Pattern datePattern = Pattern.compile("\\d{1,2}\\.\\d{1,2}\\.\\d{4}");
-        Matcher matcher = datePattern.matcher(text);
-
-        while (matcher.find()) {
-            dates.add(matcher.group());
-        }
-
-        return dates;
-    }
-
-    /**
-     * Поиск номеров протоколов
-     */
-    private List<String> findProtocolNumbers(String text) {
-        List<String> numbers = new ArrayList<>();
-        Pattern numberPattern = Pattern.compile("\\b\\d{6,12}\\b");
-        Matcher matcher = numberPattern.matcher(text);
-
-        while (matcher.find()) {
-            numbers.add(matcher.group());
-        }
-
-        return numbers;
-    }
-
     /**
      * Логирование найденных ключевых слов программ
      */
-    private void logProgramKeywords(String pageText) {
-        String lowerText = pageText.toLowerCase();
-
-        String[] programKeywords = {
-                "электроустановк", "сосуд", "давлен", "огнев", "газоопасн",
-                "первая помощь", "оказание первой", "средств индивидуальной защиты", "сиз",
-                "вредных и опасных", "производственных факторов",
-                "общие вопросы охраны труда", "системы управления охраной труда",
-                "безопасные методы", "работ повышенной опасности"
-        };
-
+    private void logProgramKeywords(ProtocolPageLexer.PageTokens pageTokens) {
         logger.info("Ключевые слова программ на странице:");
-        for (String keyword : programKeywords) {
-            if (lowerText.contains(keyword)) {
+        for (String keyword : ProtocolPageLexer.PROGRAM_KEYWORDS) {
+            if (pageTokens.hasKeyword(keyword)) {
                 logger.info("  ✓ Найдено: '{}'", keyword);
             }
         }
@@ -161,10 +97,12 @@ public class ParsingDebugService {
     public void checkPageContent(String pageText, int pageNumber) {
         logger.info("=== ПРОВЕРКА СОДЕРЖИМОГО СТРАНИЦЫ {} ===", pageNumber);
 
+        ProtocolPageLexer.PageTokens pageTokens = protocolPageLexer.tokenize(pageText);
+
         // Проверяем наличие обязательных элементов
-        boolean hasName = hasName(pageText);
-        boolean hasDate = hasDate(pageText);
-        boolean hasProgram = hasProgramKeywords(pageText);
+        boolean hasName = !pageTokens.names(3, 3).isEmpty();
+        boolean hasDate = pageTokens.has(ProtocolPageLexer.TokenType.DATE);
+        boolean hasProgram = hasProgramKeywords(pageTokens);
 
         logger.info("Есть ФИО: {}", hasName ? "ДА" : "НЕТ");
         logger.info("Есть дата: {}", hasDate ? "ДА" : "НЕТ");
@@ -183,18 +121,9 @@ public class ParsingDebugService {
         logger.info("=== КОНЕЦ ПРОВЕРКИ ===\n");
     }
 
-    private boolean hasName(String text) {
-        return text.matches(".*[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+.*");
-    }
-
-    private boolean hasDate(String text) {
-        return text.matches(".*\\d{1,2}\\.\\d{1,2}\\.\\d{4}.*");
-    }
-
-    private boolean hasProgramKeywords(String text) {
-        String lowerText = text.toLowerCase();
-        return lowerText.contains("охрана труда") ||
-                lowerText.contains("безопасные методы") ||
-                lowerText.contains("программ");
+    private boolean hasProgramKeywords(ProtocolPageLexer.PageTokens pageTokens) {
+        return pageTokens.hasKeyword("охрана труда") ||
+                pageTokens.hasKeyword("безопасные методы") ||
+                pageTokens.hasKeyword("программ");
     }
-}
\ No newline at end of file
+}
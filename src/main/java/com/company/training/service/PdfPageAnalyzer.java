@@ -2,17 +2,19 @@ package com.company.training.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 public class PdfPageAnalyzer {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfPageAnalyzer.class);
 
+    @Autowired
+    private ProtocolPageLexer protocolPageLexer;
+
     /**
      * Анализирует страницу PDF и возвращает структурированную информацию
      */
@@ -20,20 +22,22 @@ public class PdfPageAnalyzer {
         PageAnalysisResult result = new PageAnalysisResult();
         result.setPageNumber(pageNumber);
 
+        ProtocolPageLexer.PageTokens pageTokens = protocolPageLexer.tokenize(pageText);
+
         // 1. Извлекаем все возможные ФИО с контекстом
-        List<NameWithContext> namesWithContext = extractNamesWithContext(pageText);
+        List<NameWithContext> namesWithContext = extractNamesWithContext(pageTokens);
         result.setNamesWithContext(namesWithContext);
 
         // 2. Извлекаем все даты с контекстом
-        List<DateWithContext> datesWithContext = extractDatesWithContext(pageText);
+        List<DateWithContext> datesWithContext = extractDatesWithContext(pageTokens);
         result.setDatesWithContext(datesWithContext);
 
         // 3. Извлекаем номера протоколов с контекстом
-        List<ProtocolNumberWithContext> protocolNumbersWithContext = extractProtocolNumbersWithContext(pageText);
+        List<ProtocolNumberWithContext> protocolNumbersWithContext = extractProtocolNumbersWithContext(pageTokens);
         result.setProtocolNumbersWithContext(protocolNumbersWithContext);
 
         // 4. Определяем тип документа
-        DocumentType documentType = determineDocumentType(pageText);
+        DocumentType documentType = determineDocumentType(pageTokens);
         result.setDocumentType(documentType);
 
         // 5. Ищем таблицу с данными
@@ -46,23 +50,15 @@ public class PdfPageAnalyzer {
     /**
      * Извлекает ФИО с контекстом (окружающим текстом)
      */
-    private List<NameWithContext> extractNamesWithContext(String text) {
+    private List<NameWithContext> extractNamesWithContext(ProtocolPageLexer.PageTokens pageTokens) {
         List<NameWithContext> results = new ArrayList<>();
 
-        // Паттерн для поиска ФИО
-        Pattern namePattern = Pattern.compile("\\b([А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+(?:\\s+[А-ЯЁ][а-яё]+)?)\\b");
-        Matcher matcher = namePattern.matcher(text);
-
-        while (matcher.find()) {
-            String fullName = matcher.group(1);
-            int start = Math.max(0, matcher.start() - 50);
-            int end = Math.min(text.length(), matcher.end() + 50);
-            String context = text.substring(start, end);
-
+        // ФИО: 2-3 слова с заглавной буквы подряд
+        for (ProtocolPageLexer.Token name : pageTokens.names(2, 3)) {
             NameWithContext nameWithContext = new NameWithContext();
-            nameWithContext.setFullName(fullName);
-            nameWithContext.setContext(context);
-            nameWithContext.setPositionInText(matcher.start());
+            nameWithContext.setFullName(name.getText());
+            nameWithContext.setContext(context(pageTokens.getText(), name, 50));
+            nameWithContext.setPositionInText(name.getStart());
 
             results.add(nameWithContext);
         }
@@ -73,21 +69,13 @@ public class PdfPageAnalyzer {
     /**
      * Извлекает даты с контекстом
      */
-    private List<DateWithContext> extractDatesWithContext(String text) {
+    private List<DateWithContext> extractDatesWithContext(ProtocolPageLexer.PageTokens pageTokens) {
         List<DateWithContext> results = new ArrayList<>();
 
-        Pattern datePattern = Pattern.compile("(\\d{1,2}\\.\\d{1,2}\\.\\d{4})");
-        Matcher matcher = datePattern.matcher(text);
-
-        while (matcher.find()) {
-            String date = matcher.group(1);
-            int start = Math.max(0, matcher.start() - 30);
-            int end = Math.min(text.length(), matcher.end() + 30);
-            String context = text.substring(start, end);
-
+        for (ProtocolPageLexer.Token date : pageTokens.ofType(ProtocolPageLexer.TokenType.DATE)) {
             DateWithContext dateWithContext = new DateWithContext();
-            dateWithContext.setDate(date);
-            dateWithContext.setContext(context);
+            dateWithContext.setDate(date.getText());
+            dateWithContext.setContext(context(pageTokens.getText(), date, 30));
 
             results.add(dateWithContext);
         }
@@ -98,21 +86,13 @@ public class PdfPageAnalyzer {
     /**
      * Извлекает номера протоколов с контекстом
      */
-    private List<ProtocolNumberWithContext> extractProtocolNumbersWithContext(String text) {
+    private List<ProtocolNumberWithContext> extractProtocolNumbersWithContext(ProtocolPageLexer.PageTokens pageTokens) {
         List<ProtocolNumberWithContext> results = new ArrayList<>();
 
-        Pattern numberPattern = Pattern.compile("\\b(\\d{6,12})\\b");
-        Matcher matcher = numberPattern.matcher(text);
-
-        while (matcher.find()) {
-            String number = matcher.group(1);
-            int start = Math.max(0, matcher.start() - 30);
-            int end = Math.min(text.length(), matcher.end() + 30);
-            String context = text.substring(start, end);
-
+        for (ProtocolPageLexer.Token number : pageTokens.numbers(6, 12)) {
             ProtocolNumberWithContext protocolNumberWithContext = new ProtocolNumberWithContext();
-            protocolNumberWithContext.setNumber(number);
-            protocolNumberWithContext.setContext(context);
+            protocolNumberWithContext.setNumber(number.getText());
+            protocolNumberWithContext.setContext(context(pageTokens.getText(), number, 30));
 
             results.add(protocolNumberWithContext);
         }
@@ -121,19 +101,26 @@ public class PdfPageAnalyzer {
     }
 
     /**
-     * Определяет тип документа
+     * Текст вокруг токена: до radius символов с каждой стороны
      */
-    private DocumentType determineDocumentType(String text) {
-        String lowerText = text.toLowerCase();
+    private String context(String text, ProtocolPageLexer.Token token, int radius) {
+        int start = Math.max(0, token.getStart() - radius);
+        int end = Math.min(text.length(), token.getEnd() + radius);
+        return text.substring(start, end);
+    }
 
-        if (lowerText.contains("протокол проверки знаний") &&
-                lowerText.contains("охрана труда")) {
+    /**
+     * Определяет тип документа
+     */
+    private DocumentType determineDocumentType(ProtocolPageLexer.PageTokens pageTokens) {
+        if (pageTokens.hasKeyword("протокол проверки знаний") &&
+                pageTokens.hasKeyword("охрана труда")) {
             return DocumentType.OCCUPATIONAL_SAFETY_PROTOCOL;
-        } else if (lowerText.contains("протокол") &&
-                lowerText.contains("проверка знаний")) {
+        } else if (pageTokens.hasKeyword("протокол") &&
+                pageTokens.hasKeyword("проверка знаний")) {
             return DocumentType.GENERAL_PROTOCOL;
-        } else if (lowerText.contains("аттестация") ||
-                lowerText.contains("свидетельство")) {
+        } else if (pageTokens.hasKeyword("аттестация") ||
+                pageTokens.hasKeyword("свидетельство")) {
             return DocumentType.CERTIFICATE;
         }
 
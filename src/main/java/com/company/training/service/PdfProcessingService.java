@@ -5,40 +5,37 @@ import com.company.training.dto.ProtocolValidationResult;
 import com.company.training.entity.*;
 import com.company.training.repository.EmployeeRepository;
 import com.company.training.repository.PdfDocumentRepository;
+import com.company.training.repository.PdfPageOcrRepository;
 import com.company.training.repository.TrainingDirectionRepository;
+import com.company.training.repository.TrainingRecordBatchRepository;
+import com.company.training.repository.TrainingRecordRepository;
 import jakarta.transaction.Transactional;
-import net.sourceforge.tess4j.Tesseract;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.multipdf.Splitter;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.rendering.PDFRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class PdfProcessingService {
     private static final Logger logger = LoggerFactory.getLogger(PdfProcessingService.class);
-    private final Path pdfStorageLocation;
-    private final Path protocolStorageLocation;
 
     @Autowired
     private PdfDocumentRepository pdfDocumentRepository;
@@ -58,52 +55,88 @@ public class PdfProcessingService {
     @Autowired
     private ParsingDebugService parsingDebugService;
 
-    private final Tesseract tesseract;
+    @Autowired
+    private ParallelOcrService parallelOcrService;
 
-    // Паттерны для поиска
-    private static final Pattern DATE_PATTERN = Pattern.compile("(\\d{1,2}\\.\\d{1,2}\\.\\d{4})");
-    private static final Pattern REG_NUM_PATTERN = Pattern.compile("\\b(\\d{4,15})\\b");
-    private static final Pattern RUSSIAN_NAME_PATTERN = Pattern.compile("[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+\\s+[А-ЯЁ][а-яё]+");
-    private static final Pattern PAGE_NUMBER_PATTERN = Pattern.compile("=== Страница (\\d+) ===");
+    @Autowired
+    private PdfPageOcrRepository pdfPageOcrRepository;
 
-    public PdfProcessingService() {
-        this.pdfStorageLocation = Paths.get("uploads/pdf-protocols").toAbsolutePath().normalize();
-        this.protocolStorageLocation = Paths.get("uploads/protocols").toAbsolutePath().normalize();
+    @Autowired
+    private EmployeeNameIndex employeeNameIndex;
 
-        try {
-            Files.createDirectories(this.pdfStorageLocation);
-            Files.createDirectories(this.protocolStorageLocation);
-            logger.info("Директории созданы: PDF={}, Protocols={}",
-                    this.pdfStorageLocation, this.protocolStorageLocation);
-        } catch (Exception ex) {
-            logger.error("Не удалось создать директории", ex);
-            throw new RuntimeException("Не удалось создать директории", ex);
-        }
+    @Autowired
+    private TrainingDirectionClassifier trainingDirectionClassifier;
 
-        // Инициализация Tesseract
-        tesseract = new Tesseract();
-        tesseract.setDatapath("tessdata");
-        tesseract.setLanguage("rus");
-        tesseract.setPageSegMode(6);
-        tesseract.setTessVariable("user_defined_dpi", "400");
-    }
+    @Autowired
+    private ProtocolPageLexer protocolPageLexer;
+
+    @Autowired
+    private ParsedProtocolCache parsedProtocolCache;
+
+    @Autowired
+    private TrainingRecordRepository trainingRecordRepository;
+
+    @Autowired
+    private TrainingRecordBatchRepository trainingRecordBatchRepository;
+
+    @Autowired
+    private ProtocolPageSplitter protocolPageSplitter;
+
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+
+    @Autowired
+    private ProtocolStorage protocolStorage;
+
+    @Autowired
+    @Qualifier("sourcePdfStorage")
+    private LocalProtocolStorage sourcePdfStorage;
+
+    // Сколько вариантов сотрудника показывать при нечетком совпадении фамилии
+    private static final int MAX_EMPLOYEE_CANDIDATES = 5;
+
+    // Слова, похожие на фамилию: с заглавной буквы, длиной больше 3
+    private static final int MIN_SURNAME_LENGTH = 4;
+
+    // Номера протоколов: от 6 до 12 цифр
+    private static final int MIN_PROTOCOL_NUMBER_LENGTH = 6;
+    private static final int MAX_PROTOCOL_NUMBER_LENGTH = 12;
+
+    // Паттерны для поиска
+    private static final Pattern PAGE_NUMBER_PATTERN = Pattern.compile("=== Страница (\\d+) ===");
 
     /**
-     * Загрузка и сохранение PDF файла
+     * Загрузка и сохранение PDF файла.
+     * Файл хранится под именем SHA-256 содержимого (хеш считается при записи потока),
+     * поэтому повторная загрузка того же скана не создает копию на диске.
+     * Исходные PDF всегда лежат в локальном хранилище: OCR и PDFBox читают их как файлы.
+     * Если такой файл уже распознавался, новый документ получает готовый OCR без очереди
      */
     public PdfDocument uploadPdf(MultipartFile file, PdfDocument.PdfType type) throws IOException {
         String originalFilename = file.getOriginalFilename();
-        String storedFilename = UUID.randomUUID().toString() + "_" + originalFilename;
-        Path targetLocation = this.pdfStorageLocation.resolve(storedFilename);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+
+        ProtocolStorage.StoredObject stored;
+        try (InputStream inputStream = file.getInputStream()) {
+            stored = sourcePdfStorage.store(inputStream, ".pdf");
+        }
+        String contentHash = stored.getSha256();
+        Path targetLocation = sourcePdfStorage.localPath(stored.getKey())
+                .orElseThrow(() -> new IOException("PDF не найден после сохранения: " + stored.getKey()));
 
         PdfDocument pdfDocument = new PdfDocument();
         pdfDocument.setOriginalFilename(originalFilename);
-        pdfDocument.setStoredFilename(storedFilename);
+        pdfDocument.setStoredFilename(stored.getKey());
+        pdfDocument.setContentHash(contentHash);
         pdfDocument.setType(type);
         pdfDocument.setFilePath(targetLocation.toString());
         pdfDocument.setStatus(PdfDocument.ProcessingStatus.PENDING);
 
+        Optional<PdfDocument> recognizedCopy =
+                pdfDocumentRepository.findFirstByContentHashAndOcrTextIsNotNullOrderByIdDesc(contentHash);
+        if (recognizedCopy.isPresent()) {
+            return reuseOcrResult(pdfDocument, recognizedCopy.get());
+        }
+
         try (PDDocument document = Loader.loadPDF(new File(targetLocation.toString()))) {
             pdfDocument.setPageCount(document.getNumberOfPages());
         } catch (Exception e) {
@@ -114,33 +147,111 @@ public class PdfProcessingService {
     }
 
     /**
-     * OCR распознавание PDF
+     * Повторная загрузка уже распознанного файла: копируем текст документа и постраничные
+     * результаты, чтобы проверка и последующие операции работали как после обычного OCR
+     */
+    private PdfDocument reuseOcrResult(PdfDocument pdfDocument, PdfDocument source) {
+        logger.info("Файл {} совпадает с документом {}, OCR не требуется",
+                pdfDocument.getOriginalFilename(), source.getId());
+
+        pdfDocument.setPageCount(source.getPageCount());
+        pdfDocument.setOcrText(source.getOcrText());
+        pdfDocument.setProcessedPages(source.getPageCount());
+        pdfDocument.setStatus(PdfDocument.ProcessingStatus.NEEDS_REVIEW);
+        pdfDocument.setProcessedAt(java.time.LocalDateTime.now());
+        PdfDocument saved = pdfDocumentRepository.save(pdfDocument);
+
+        List<PdfPageOcr> copies = new ArrayList<>();
+        for (PdfPageOcr sourcePage : pdfPageOcrRepository.findByPdfDocumentIdOrderByPageNumberAsc(source.getId())) {
+            if (sourcePage.getStatus() != PdfPageOcr.PageStatus.DONE) {
+                continue;
+            }
+            PdfPageOcr page = new PdfPageOcr(saved.getId(), sourcePage.getPageNumber());
+            page.setPageHash(sourcePage.getPageHash());
+            page.setText(sourcePage.getText());
+            page.setConfidence(sourcePage.getConfidence());
+            page.setDurationMs(0L);
+            page.setSource(PdfPageOcr.PageSource.CACHE);
+            page.setStatus(PdfPageOcr.PageStatus.DONE);
+            page.setProcessedAt(saved.getProcessedAt());
+            copies.add(page);
+        }
+        pdfPageOcrRepository.saveAll(copies);
+
+        return saved;
+    }
+
+    /**
+     * OCR распознавание PDF.
+     * Каждая страница сохраняется в pdf_page_ocr сразу после распознавания,
+     * поэтому повторный запуск распознает только отсутствующие и упавшие страницы
      */
     public PdfDocument processOcr(Long pdfDocumentId) throws Exception {
         PdfDocument pdfDocument = pdfDocumentRepository.findById(pdfDocumentId)
                 .orElseThrow(() -> new RuntimeException("PDF документ не найден"));
 
-        pdfDocument.setStatus(PdfDocument.ProcessingStatus.PROCESSING);
-        pdfDocumentRepository.save(pdfDocument);
-
         File pdfFile = new File(pdfDocument.getFilePath());
-        StringBuilder ocrText = new StringBuilder();
+        AtomicInteger processedPages = new AtomicInteger();
+
+        try {
+            int pageCount = parallelOcrService.countPages(pdfFile);
+            Set<Integer> donePages = new HashSet<>(pdfPageOcrRepository.findPageNumbersByStatus(
+                    pdfDocumentId, PdfPageOcr.PageStatus.DONE));
+
+            List<Integer> pagesToProcess = new ArrayList<>();
+            for (int pageNumber = 1; pageNumber <= pageCount; pageNumber++) {
+                if (!donePages.contains(pageNumber)) {
+                    pagesToProcess.add(pageNumber);
+                }
+            }
+            processedPages.set(pageCount - pagesToProcess.size());
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
-            PDFRenderer renderer = new PDFRenderer(document);
-            for (int i = 0; i < document.getNumberOfPages(); i++) {
-                logger.info("Обработка страницы {} из {}", i + 1, document.getNumberOfPages());
-                BufferedImage image = renderer.renderImageWithDPI(i, 400);
-                String pageText = tesseract.doOCR(image);
-                ocrText.append("=== Страница ").append(i + 1).append(" ===\n");
-                ocrText.append(pageText).append("\n");
+            pdfDocument.setPageCount(pageCount);
+            pdfDocument.setStatus(PdfDocument.ProcessingStatus.PROCESSING);
+            pdfDocument.setProcessedPages(processedPages.get());
+            pdfDocument.setProcessingStartPages(processedPages.get());
+            pdfDocument.setProcessingStartedAt(java.time.LocalDateTime.now());
+            pdfDocumentRepository.save(pdfDocument);
+
+            if (processedPages.get() > 0) {
+                logger.info("Документ {}: {} страниц уже распознано, осталось {}",
+                        pdfDocumentId, processedPages.get(), pagesToProcess.size());
+            }
+
+            // Страницы распознаются параллельно, каждая сохраняется и учитывается в прогрессе сразу
+            List<Integer> failedPages = Collections.synchronizedList(new ArrayList<>());
+            Map<PdfPageOcr.PageSource, AtomicInteger> pagesBySource = new EnumMap<>(PdfPageOcr.PageSource.class);
+            for (PdfPageOcr.PageSource source : PdfPageOcr.PageSource.values()) {
+                pagesBySource.put(source, new AtomicInteger());
+            }
+            parallelOcrService.recognizePages(pdfFile, pagesToProcess, this::findRecognizedPage, pageResult -> {
+                savePageOcrResult(pdfDocumentId, pageResult);
+                if (pageResult.isSuccess()) {
+                    pagesBySource.get(pageResult.getSource()).incrementAndGet();
+                    pdfDocumentRepository.updateProcessedPages(pdfDocumentId, processedPages.incrementAndGet());
+                } else {
+                    failedPages.add(pageResult.getPageNumber());
+                }
+            });
+            logger.info("Документ {}: страниц через OCR {}, из текстового слоя {}, из кеша {}", pdfDocumentId,
+                    pagesBySource.get(PdfPageOcr.PageSource.OCR), pagesBySource.get(PdfPageOcr.PageSource.TEXT_LAYER),
+                    pagesBySource.get(PdfPageOcr.PageSource.CACHE));
+
+            if (!failedPages.isEmpty()) {
+                List<Integer> sortedFailedPages = new ArrayList<>(failedPages);
+                Collections.sort(sortedFailedPages);
+                throw new RuntimeException("не распознаны страницы " + sortedFailedPages +
+                        " (распознано " + processedPages.get() + " из " + pageCount + ")");
             }
 
-            pdfDocument.setOcrText(ocrText.toString());
+            pdfDocument.setOcrText(assembleOcrText(pdfDocumentId));
+            pdfDocument.setProcessedPages(processedPages.get());
+            pdfDocument.setProcessingResult(null);
             pdfDocument.setStatus(PdfDocument.ProcessingStatus.NEEDS_REVIEW);
             pdfDocument.setProcessedAt(java.time.LocalDateTime.now());
             return pdfDocumentRepository.save(pdfDocument);
         } catch (Exception e) {
+            pdfDocument.setProcessedPages(processedPages.get());
             pdfDocument.setStatus(PdfDocument.ProcessingStatus.ERROR);
             pdfDocument.setProcessingResult("Ошибка OCR: " + e.getMessage());
             pdfDocumentRepository.save(pdfDocument);
@@ -149,37 +260,62 @@ public class PdfProcessingService {
     }
 
     /**
-     * Извлекает отдельную страницу из PDF и сохраняет как отдельный файл
+     * Сохраняет (или перезаписывает) результат распознавания одной страницы
      */
-    private String extractSinglePageFromPdf(File sourcePdf, int pageNumber,
-                                            Long employeeId, Long directionId,
-                                            LocalDate examDate) throws IOException {
-
-        try (PDDocument sourceDoc = Loader.loadPDF(sourcePdf)) {
-            if (pageNumber < 1 || pageNumber > sourceDoc.getNumberOfPages()) {
-                throw new IllegalArgumentException("Неверный номер страницы: " + pageNumber);
-            }
-
-            // Создаем новый документ с одной страницей
-            try (PDDocument singlePageDoc = new PDDocument()) {
-                // Получаем нужную страницу (индексация с 0)
-                PDPage page = sourceDoc.getPage(pageNumber - 1);
-                singlePageDoc.addPage(page);
+    private void savePageOcrResult(Long pdfDocumentId, ParallelOcrService.PageOcrResult pageResult) {
+        PdfPageOcr page = pdfPageOcrRepository
+                .findByPdfDocumentIdAndPageNumber(pdfDocumentId, pageResult.getPageNumber())
+                .orElseGet(() -> new PdfPageOcr(pdfDocumentId, pageResult.getPageNumber()));
+
+        page.setPageHash(pageResult.getPageHash());
+        page.setDurationMs(pageResult.getDurationMs());
+        page.setProcessedAt(java.time.LocalDateTime.now());
+        if (pageResult.isSuccess()) {
+            page.setStatus(PdfPageOcr.PageStatus.DONE);
+            page.setText(pageResult.getText());
+            page.setConfidence(pageResult.getConfidence());
+            page.setSource(pageResult.getSource());
+            page.setErrorMessage(null);
+        } else {
+            page.setStatus(PdfPageOcr.PageStatus.ERROR);
+            page.setErrorMessage(pageResult.getError().length() > 1000
+                    ? pageResult.getError().substring(0, 1000) : pageResult.getError());
+        }
 
-                // Генерируем имя файла
-                String fileName = String.format("protocol_%d_%d_%s_page%d.pdf",
-                        employeeId,
-                        directionId,
-                        examDate.format(DateTimeFormatter.ofPattern("yyyyMMdd")),
-                        pageNumber);
+        pdfPageOcrRepository.save(page);
+    }
 
-                Path outputPath = this.protocolStorageLocation.resolve(fileName);
-                singlePageDoc.save(outputPath.toFile());
+    /**
+     * Ищет страницу с тем же содержимым, уже распознанную в другом документе
+     */
+    private ParallelOcrService.PageOcrResult findRecognizedPage(int pageNumber, String pageHash) {
+        return pdfPageOcrRepository.findFirstByPageHashAndStatusOrderByIdDesc(pageHash, PdfPageOcr.PageStatus.DONE)
+                .map(page -> ParallelOcrService.PageOcrResult.cached(pageNumber, pageHash,
+                        page.getText(), page.getConfidence() != null ? page.getConfidence() : 0f))
+                .orElse(null);
+    }
 
-                logger.info("Страница {} извлечена в файл: {}", pageNumber, fileName);
-                return fileName;
-            }
+    /**
+     * Собирает полный OCR текст документа из постраничных результатов
+     */
+    private String assembleOcrText(Long pdfDocumentId) {
+        StringBuilder ocrText = new StringBuilder();
+        for (PdfPageOcr page : pdfPageOcrRepository.findByPdfDocumentIdOrderByPageNumberAsc(pdfDocumentId)) {
+            ocrText.append("=== Страница ").append(page.getPageNumber()).append(" ===\n");
+            ocrText.append(page.getText() != null ? page.getText() : "").append("\n");
         }
+        return ocrText.toString();
+    }
+
+    /**
+     * Имя файла протокола, извлеченного из страницы PDF
+     */
+    private static String protocolFileName(Long employeeId, Long directionId, LocalDate examDate, int pageNumber) {
+        return String.format("protocol_%d_%d_%s_page%d.pdf",
+                employeeId,
+                directionId,
+                examDate.format(DateTimeFormatter.ofPattern("yyyyMMdd")),
+                pageNumber);
     }
 
     /**
@@ -194,6 +330,43 @@ public class PdfProcessingService {
         List<String> errors = new ArrayList<>();
         List<String> successes = new ArrayList<>();
         File sourceFile = new File(pdfDocument.getFilePath());
+        int pageCount = pdfDocument.getPageCount() != null
+                ? pdfDocument.getPageCount()
+                : countSourcePages(sourceFile);
+
+        // 1. Загружаем сотрудников, направления и существующие записи об обучении
+        //    для всех записей протокола сразу, а не по одной
+        Set<Long> employeeIds = new HashSet<>();
+        Set<Long> directionIds = new HashSet<>();
+        for (ParsedProtocolRecord record : records) {
+            if (record != null && record.isValid()) {
+                if (record.getMatchedEmployeeId() != null) {
+                    employeeIds.add(record.getMatchedEmployeeId());
+                }
+                if (record.getSelectedDirectionId() != null) {
+                    directionIds.add(record.getSelectedDirectionId());
+                }
+            }
+        }
+
+        Map<Long, Employee> employees = employeeRepository.findAllById(employeeIds).stream()
+                .collect(Collectors.toMap(Employee::getId, employee -> employee));
+        Map<Long, TrainingDirection> directions = trainingDirectionRepository.findAllById(directionIds).stream()
+                .collect(Collectors.toMap(TrainingDirection::getId, direction -> direction));
+
+        Map<String, TrainingRecord> existingRecords = new HashMap<>();
+        if (!employeeIds.isEmpty() && !directionIds.isEmpty()) {
+            for (TrainingRecord existing : trainingRecordRepository.findByEmployeeIdsAndDirectionIds(employeeIds, directionIds)) {
+                existingRecords.putIfAbsent(
+                        recordKey(existing.getEmployee().getId(), existing.getTrainingDirection().getId()), existing);
+            }
+        }
+
+        // 2. Готовим вставки и обновления; запись сотрудник + направление, встретившаяся
+        //    в протоколе повторно, обновляет уже подготовленную строку
+        Map<String, TrainingRecordBatchRepository.TrainingRecordRow> rows = new LinkedHashMap<>();
+        Map<String, Integer> pagesByFile = new LinkedHashMap<>();
+        List<String> replacedFiles = new ArrayList<>();
 
         for (ParsedProtocolRecord record : records) {
             if (record == null || !record.isValid()) {
@@ -201,105 +374,79 @@ public class PdfProcessingService {
             }
 
             try {
-                // 1. Находим сотрудника
+                // Находим сотрудника
                 if (record.getMatchedEmployeeId() == null) {
                     errors.add("Сотрудник не указан для записи: " + record.getFullName());
                     continue;
                 }
 
-                Employee employee;
-                try {
-                    employee = employeeRepository.findById(record.getMatchedEmployeeId())
-                            .orElseThrow(() -> new RuntimeException("Сотрудник не найден в БД"));
-                } catch (Exception e) {
-                    errors.add("Сотрудник не найден (ID: " + record.getMatchedEmployeeId() + "): " + e.getMessage());
+                Employee employee = employees.get(record.getMatchedEmployeeId());
+                if (employee == null) {
+                    errors.add("Сотрудник не найден (ID: " + record.getMatchedEmployeeId() + "): Сотрудник не найден в БД");
                     continue;
                 }
 
-                // 2. Находим направление обучения
-                TrainingDirection direction;
+                // Находим направление обучения
                 Long directionId = record.getSelectedDirectionId();
-
                 if (directionId == null) {
                     errors.add("Направление не указано для " + record.getFullName());
                     continue;
                 }
 
-                try {
-                    direction = trainingDirectionRepository.findById(directionId)
-                            .orElseThrow(() -> new RuntimeException("Направление не найдено"));
-                } catch (Exception e) {
-                    errors.add("Направление не найдено (ID: " + directionId + ") для " + record.getFullName() + ": " + e.getMessage());
+                TrainingDirection direction = directions.get(directionId);
+                if (direction == null) {
+                    errors.add("Направление не найдено (ID: " + directionId + ") для " + record.getFullName() + ": Направление не найдено");
                     continue;
                 }
 
-                // 3. Проверяем номер страницы
+                // Проверяем номер страницы
                 if (record.getPageNumber() == null) {
                     errors.add("Номер страницы не указан для " + record.getFullName());
                     continue;
                 }
 
-                // 4. Проверяем, существует ли уже такая запись об обучении
-                TrainingRecord existingRecord = trainingService.getTrainingRecord(
-                        employee.getId(), direction.getId());
+                if (record.getPageNumber() < 1 || record.getPageNumber() > pageCount) {
+                    throw new IllegalArgumentException("Неверный номер страницы: " + record.getPageNumber());
+                }
 
-                if (existingRecord != null) {
-                    // 4a. Удаляем старый файл протокола, если он существует
+                // Страница будет извлечена в отдельный файл вместе с остальными
+                String protocolFileName = protocolFileName(employee.getId(), direction.getId(),
+                        record.getExamDate(), record.getPageNumber());
+
+                // Проверяем, существует ли уже такая запись об обучении
+                String key = recordKey(employee.getId(), direction.getId());
+                TrainingRecordBatchRepository.TrainingRecordRow row = rows.get(key);
+                TrainingRecord existingRecord = existingRecords.get(key);
+                boolean updated;
+                if (row != null) {
+                    // Файл предыдущей страницы для этой пары еще не записан - просто не пишем его
+                    pagesByFile.remove(row.getFilePath());
+                    updated = true;
+                } else if (existingRecord != null) {
+                    row = new TrainingRecordBatchRepository.TrainingRecordRow(
+                            existingRecord.getId(), employee.getId(), direction.getId());
                     if (existingRecord.getFilePath() != null) {
-                        try {
-                            Path oldFilePath = this.protocolStorageLocation.resolve(existingRecord.getFilePath());
-                            Files.deleteIfExists(oldFilePath);
-                            logger.info("Удален старый файл протокола: {}", existingRecord.getFilePath());
-                        } catch (IOException e) {
-                            logger.warn("Не удалось удалить старый файл: {}", e.getMessage());
-                        }
+                        replacedFiles.add(existingRecord.getFilePath());
                     }
-
-                    // 4b. Извлекаем новую страницу как отдельный файл
-                    String protocolFileName = extractSinglePageFromPdf(
-                            sourceFile,
-                            record.getPageNumber(),
-                            employee.getId(),
-                            direction.getId(),
-                            record.getExamDate());
-
-                    // 4c. Обновляем существующую запись
-                    existingRecord.setExamDate(record.getExamDate());
-                    existingRecord.setProtocolNumber(record.getRegistrationNumber());
-                    existingRecord.setApplicable(true);
-                    existingRecord.setFileName(record.getFullName() + " - " + direction.getName());
-                    existingRecord.setFilePath(protocolFileName);
-
-                    trainingService.saveTrainingRecordWithoutFile(existingRecord);
-                    successes.add("Обновлена запись для " + employee.getFullName() +
-                            " по направлению " + direction.getName() +
-                            " (страница " + record.getPageNumber() + ")");
+                    updated = true;
                 } else {
-                    // 5. Создаем новую запись с извлеченной страницей
-                    TrainingRecord trainingRecord = new TrainingRecord();
-                    trainingRecord.setEmployee(employee);
-                    trainingRecord.setTrainingDirection(direction);
-                    trainingRecord.setExamDate(record.getExamDate());
-                    trainingRecord.setProtocolNumber(record.getRegistrationNumber());
-                    trainingRecord.setApplicable(true);
-
-                    // Извлекаем страницу как отдельный файл
-                    String protocolFileName = extractSinglePageFromPdf(
-                            sourceFile,
-                            record.getPageNumber(),
-                            employee.getId(),
-                            direction.getId(),
-                            record.getExamDate());
-
-                    trainingRecord.setFileName(record.getFullName() + " - " + direction.getName());
-                    trainingRecord.setFilePath(protocolFileName);
-
-                    trainingService.saveTrainingRecordWithoutFile(trainingRecord);
-                    successes.add("Создана новая запись для " + employee.getFullName() +
-                            " по направлению " + direction.getName() +
-                            " (страница " + record.getPageNumber() + ")");
+                    row = new TrainingRecordBatchRepository.TrainingRecordRow(null, employee.getId(), direction.getId());
+                    updated = false;
                 }
 
+                row.setExamDate(record.getExamDate());
+                row.setNextExamDate(TrainingRecord.calculateNextExamDate(
+                        record.getExamDate(), direction.getValidityMonths()));
+                row.setProtocolNumber(record.getRegistrationNumber());
+                row.setApplicable(true);
+                row.setFileName(record.getFullName() + " - " + direction.getName());
+                row.setFilePath(protocolFileName);
+                rows.put(key, row);
+                pagesByFile.put(protocolFileName, record.getPageNumber());
+
+                successes.add((updated ? "Обновлена запись для " : "Создана новая запись для ") + employee.getFullName() +
+                        " по направлению " + direction.getName() +
+                        " (страница " + record.getPageNumber() + ")");
                 savedRecords++;
 
             } catch (Exception e) {
@@ -310,6 +457,54 @@ public class PdfProcessingService {
             }
         }
 
+        // 3. Нарезаем страницы в файлы (исходный PDF открывается один раз)
+        //    параллельно с записью в БД
+        List<ProtocolPageSplitter.PageExtraction> extractions = new ArrayList<>();
+        pagesByFile.forEach((fileName, pageNumber) -> extractions.add(
+                new ProtocolPageSplitter.PageExtraction(pageNumber, fileName)));
+        CompletableFuture<Integer> pageFiles = protocolPageSplitter.splitAsync(sourceFile, extractions);
+
+        // 4. Пишем все записи пачками в текущей транзакции
+        List<TrainingRecordBatchRepository.TrainingRecordRow> inserts = new ArrayList<>();
+        List<TrainingRecordBatchRepository.TrainingRecordRow> updates = new ArrayList<>();
+        for (TrainingRecordBatchRepository.TrainingRecordRow row : rows.values()) {
+            (row.isInsert() ? inserts : updates).add(row);
+        }
+        try {
+            trainingRecordBatchRepository.insertAll(inserts);
+            trainingRecordBatchRepository.updateAll(updates);
+        } catch (RuntimeException e) {
+            // Транзакция откатится, а нарезка страниц продолжает писать файлы: дожидаемся ее,
+            // чтобы не возвращать управление, пока хранилище еще меняется, и сообщаем, какие файлы
+            // остались без записей (их удалит сборщик неиспользуемых файлов)
+            try {
+                pageFiles.join();
+            } catch (CompletionException | CancellationException splitError) {
+                e.addSuppressed(splitError);
+            }
+            logger.error("Записи документа {} не сохранены, файлы страниц остались без записей: {}",
+                    pdfDocumentId, pagesByFile.keySet());
+            throw e;
+        }
+        logger.info("Записи об обучении сохранены: {} новых, {} обновлено", inserts.size(), updates.size());
+        // После массового импорта статистика дашборда не должна ждать истечения TTL
+        dashboardStatisticsService.invalidate();
+
+        // Без файлов страниц записи сохранять нельзя: ошибка откатит транзакцию
+        try {
+            pageFiles.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Не удалось сохранить страницы протокола: " + cause.getMessage(), cause);
+        }
+
+        // 5. Старые файлы протоколов удаляем только после коммита; файл с тем же именем
+        //    уже перезаписан новой страницей и удалять его нельзя
+        replacedFiles.removeIf(pagesByFile::containsKey);
+        if (!replacedFiles.isEmpty()) {
+            TransactionHooks.afterCommit(() -> deleteProtocolFiles(replacedFiles));
+        }
+
         // Обновляем статус PDF документа
         pdfDocument.setStatus(PdfDocument.ProcessingStatus.PROCESSED);
 
@@ -343,6 +538,53 @@ public class PdfProcessingService {
         return result;
     }
 
+    private int countSourcePages(File sourceFile) {
+        try {
+            return parallelOcrService.countPages(sourceFile);
+        } catch (Exception e) {
+            throw new RuntimeException("Не удалось открыть PDF документ: " + e.getMessage(), e);
+        }
+    }
+
+    private static String recordKey(Long employeeId, Long directionId) {
+        return employeeId + ":" + directionId;
+    }
+
+    private void deleteProtocolFiles(List<String> fileNames) {
+        for (String fileName : fileNames) {
+            try {
+                // Загруженный вручную файл (имя по содержимому) может быть и у других записей
+                if (trainingRecordRepository.existsByFilePath(fileName)) {
+                    continue;
+                }
+                protocolStorage.delete(fileName);
+                logger.info("Удален старый файл протокола: {}", fileName);
+            } catch (IOException e) {
+                logger.warn("Не удалось удалить старый файл {}: {}", fileName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Записи протокола для страницы валидации: берутся из сохраненного результата,
+     * если OCR текст и справочники не менялись с прошлого парсинга
+     */
+    public List<ParsedProtocolRecord> getParsedRecords(PdfDocument document) {
+        Optional<List<ParsedProtocolRecord>> stored = parsedProtocolCache.get(document);
+        if (stored.isPresent()) {
+            logger.debug("Документ {}: используем сохраненный результат парсинга ({} записей)",
+                    document.getId(), stored.get().size());
+            return stored.get();
+        }
+
+        // Поколение справочников читаем до парсинга: если они изменятся, пока идет разбор,
+        // устаревший результат не будет сохранен
+        long generation = parsedProtocolCache.currentGeneration();
+        List<ParsedProtocolRecord> records = parseOccupationalSafetyProtocol(document.getOcrText(), document.getId());
+        parsedProtocolCache.put(document, records, generation);
+        return records;
+    }
+
     /**
      * УЛУЧШЕННЫЙ алгоритм парсинга протоколов по охране труда
      * Обрабатывает КАЖДУЮ страницу как отдельный протокол
@@ -351,25 +593,9 @@ public class PdfProcessingService {
         logger.info("=== Начинаем УЛУЧШЕННЫЙ алгоритм парсинга протокола ===");
 
         List<ParsedProtocolRecord> records = new ArrayList<>();
-        List<TrainingDirection> allDirections = trainingDirectionRepository.findAllByOrderByNameAsc();
-        List<Employee> allEmployees = employeeRepository.findAll();
-
-        logger.info("Загружено направлений из БД: {}", allDirections.size());
-        logger.info("Загружено сотрудников из БД: {}", allEmployees.size());
-
-        // Карта для быстрого поиска сотрудников
-        Map<String, Employee> employeeMap = new HashMap<>();
-        for (Employee emp : allEmployees) {
-            if (emp.getFullName() != null) {
-                String normalizedFullName = normalizeForSearch(emp.getFullName());
-                employeeMap.put(normalizedFullName, emp);
-                String[] nameParts = emp.getFullName().split("\\s+");
-                if (nameParts.length >= 2) {
-                    String lastNameFirstName = normalizeForSearch(nameParts[0] + " " + nameParts[1]);
-                    employeeMap.put(lastNameFirstName, emp);
-                }
-            }
-        }
+        Map<Long, TrainingDirection> directionsById = trainingDirectionRepository.findAllByOrderByNameAsc().stream()
+                .collect(Collectors.toMap(TrainingDirection::getId, direction -> direction));
+        logger.info("Загружено направлений из БД: {}", directionsById.size());
 
         // 🔴 ИСПРАВЛЕНИЕ: Используем простой и надежный подход со split
         String[] pageSections = ocrText.split("=== Страница \\d+ ===");
@@ -395,11 +621,18 @@ public class PdfProcessingService {
             }
 
             try {
+                // Страница разбирается на токены один раз, все поля дальше берутся из них
+                ProtocolPageLexer.PageTokens pageTokens = protocolPageLexer.tokenize(pageText);
+
                 // 1. Ищем сотрудника на странице
-                Employee employee = findEmployeeOnPage(pageText, employeeMap, allEmployees);
+                Employee employee = findEmployeeOnPage(pageTokens);
+                List<EmployeeNameIndex.SurnameCandidate> surnameCandidates = Collections.emptyList();
                 if (employee == null) {
                     logger.warn("На странице {} не найден сотрудник", pageNumber);
-                    employee = findEmployeeBySurname(pageText, allEmployees);
+                    surnameCandidates = findEmployeesBySurname(pageTokens);
+                    if (!surnameCandidates.isEmpty()) {
+                        employee = employeeRepository.findWithDepartmentById(surnameCandidates.get(0).getEmployeeId()).orElse(null);
+                    }
                     if (employee == null) {
                         logger.error("Не удалось найти сотрудника на странице {}", pageNumber);
                         continue;
@@ -408,10 +641,10 @@ public class PdfProcessingService {
                 logger.info("На странице {} найден сотрудник: {}", pageNumber, employee.getFullName());
 
                 // 2. Ищем дату экзамена
-                LocalDate examDate = extractExamDateFromPage(pageText);
+                LocalDate examDate = extractExamDateFromPage(pageTokens);
                 if (examDate == null) {
                     logger.warn("На странице {} не найдена дата экзамена", pageNumber);
-                    List<LocalDate> allDates = extractAllDates(pageText);
+                    List<LocalDate> allDates = extractAllDates(pageTokens);
                     if (!allDates.isEmpty()) {
                         examDate = allDates.get(0);
                         logger.info("Используем первую найденную дату: {}", examDate);
@@ -423,11 +656,13 @@ public class PdfProcessingService {
                 logger.info("Дата экзамена на странице {}: {}", pageNumber, examDate);
 
                 // 3. Ищем номер протокола
-                String protocolNumber = extractProtocolNumberFromPage(pageText);
+                String protocolNumber = extractProtocolNumberFromPage(pageTokens);
                 logger.info("Номер протокола на странице {}: {}", pageNumber, protocolNumber);
 
                 // 4. Определяем программу обучения
-                TrainingDirection direction = determineTrainingDirection(pageText, allDirections);
+                TrainingDirection direction = trainingDirectionClassifier.classify(pageTokens)
+                        .map(scored -> directionsById.get(scored.getDirectionId()))
+                        .orElse(null);
                 if (direction != null) {
                     logger.info("Программа на странице {}: {}", pageNumber, direction.getName());
                 } else {
@@ -439,6 +674,9 @@ public class PdfProcessingService {
                         employee, examDate, protocolNumber, direction,
                         pdfDocumentId, pageNumber  // Используем правильный номер страницы
                 );
+                if (!surnameCandidates.isEmpty()) {
+                    applySurnameCandidates(record, surnameCandidates);
+                }
 
                 // Проверяем на дубликаты
                 if (!isDuplicateRecord(records, record)) {
@@ -463,85 +701,51 @@ public class PdfProcessingService {
     }
 
     /**
-     * Поиск сотрудника на странице (основной метод)
+     * Поиск сотрудника на странице (основной метод): все ФИО ищутся за один проход по индексу
      */
-    private Employee findEmployeeOnPage(String pageText, Map<String, Employee> employeeMap, List<Employee> allEmployees) {
-        // 1. Точное совпадение по ФИО из карты
-        String normalizedPageText = normalizeForSearch(pageText);
-
-        for (Map.Entry<String, Employee> entry : employeeMap.entrySet()) {
-            if (normalizedPageText.contains(entry.getKey())) {
-                return entry.getValue();
-            }
-        }
-
-        // 2. Ищем по полному ФИО в тексте
-        for (Employee employee : allEmployees) {
-            if (employee.getFullName() == null) continue;
-
-            // Проверяем несколько вариантов
-            String normalizedEmployeeName = normalizeForSearch(employee.getFullName());
-
-            // Точное вхождение
-            if (normalizedPageText.contains(normalizedEmployeeName)) {
-                return employee;
-            }
-
-            // Проверяем по фамилии и имени (без отчества)
-            String[] nameParts = employee.getFullName().split("\\s+");
-            if (nameParts.length >= 2) {
-                String lastNameFirstName = normalizeForSearch(nameParts[0] + " " + nameParts[1]);
-                if (normalizedPageText.contains(lastNameFirstName)) {
-                    return employee;
-                }
-            }
-        }
-
-        return null;
+    private Employee findEmployeeOnPage(ProtocolPageLexer.PageTokens pageTokens) {
+        return employeeNameIndex.findBestMatch(pageTokens)
+                .flatMap(employeeRepository::findWithDepartmentById)
+                .orElse(null);
     }
 
     /**
-     * Поиск сотрудника по фамилии (резервный метод)
+     * Поиск сотрудника по фамилии (резервный метод).
+     * Слова страницы, похожие на фамилии, ищутся в индексе с учетом ошибок OCR
      */
-    private Employee findEmployeeBySurname(String pageText, List<Employee> allEmployees) {
-        // Извлекаем все слова, похожие на фамилии (с заглавной буквы, длиной > 3)
-        Pattern surnamePattern = Pattern.compile("[А-ЯЁ][а-яё]{3,}");
-        Matcher matcher = surnamePattern.matcher(pageText);
-
-        Set<String> possibleSurnames = new HashSet<>();
-        while (matcher.find()) {
-            possibleSurnames.add(matcher.group());
+    private List<EmployeeNameIndex.SurnameCandidate> findEmployeesBySurname(ProtocolPageLexer.PageTokens pageTokens) {
+        // Все слова, похожие на фамилии (с заглавной буквы, длиной > 3)
+        Set<String> possibleSurnames = new HashSet<>(pageTokens.capitalizedWords(MIN_SURNAME_LENGTH));
+
+        List<EmployeeNameIndex.SurnameCandidate> candidates =
+                employeeNameIndex.findBySurname(possibleSurnames, MAX_EMPLOYEE_CANDIDATES);
+        if (!candidates.isEmpty() && candidates.get(0).getScore() < 1.0) {
+            logger.warn("Найдено приблизительное совпадение по фамилии: {} -> {}",
+                    candidates.get(0).getPageWord(), candidates.get(0).getFullName());
         }
+        return candidates;
+    }
 
-        // Ищем среди сотрудников
-        for (Employee employee : allEmployees) {
-            if (employee.getFullName() == null) continue;
-
-            String[] nameParts = employee.getFullName().split("\\s+");
-            if (nameParts.length == 0) continue;
-
-            String employeeSurname = nameParts[0];
-            if (possibleSurnames.contains(employeeSurname)) {
-                return employee;
-            }
-
-            // Проверяем с учетом ошибок OCR
-            for (String possibleSurname : possibleSurnames) {
-                if (calculateSimilarity(employeeSurname.toLowerCase(), possibleSurname.toLowerCase()) > 0.7) {
-                    logger.warn("Найдено приблизительное совпадение по фамилии: {} -> {}", possibleSurname, employeeSurname);
-                    return employee;
-                }
-            }
+    /**
+     * Сотрудник найден только по фамилии - показываем проверяющему все варианты
+     */
+    private void applySurnameCandidates(ParsedProtocolRecord record,
+                                        List<EmployeeNameIndex.SurnameCandidate> candidates) {
+        List<ParsedProtocolRecord.EmployeeCandidate> employeeCandidates = new ArrayList<>();
+        for (EmployeeNameIndex.SurnameCandidate candidate : candidates) {
+            employeeCandidates.add(new ParsedProtocolRecord.EmployeeCandidate(candidate.getEmployeeId(),
+                    candidate.getFullName(), candidate.getPageWord(),
+                    (int) Math.round(candidate.getScore() * 100)));
         }
-
-        return null;
+        record.setEmployeeCandidates(employeeCandidates);
+        record.setConfidence(employeeCandidates.get(0).getScorePercent() + "%");
     }
 
     /**
      * Извлечение даты экзамена из страницы
      */
-    private LocalDate extractExamDateFromPage(String pageText) {
-        List<LocalDate> allDates = extractAllDates(pageText);
+    private LocalDate extractExamDateFromPage(ProtocolPageLexer.PageTokens pageTokens) {
+        List<LocalDate> allDates = extractAllDates(pageTokens);
 
         // Ищем даты, которые похожи на даты экзамена (не слишком старые)
         for (LocalDate date : allDates) {
@@ -558,20 +762,8 @@ public class PdfProcessingService {
     /**
      * Извлечение ВСЕХ дат из текста
      */
-    private List<LocalDate> extractAllDates(String text) {
-        List<LocalDate> dates = new ArrayList<>();
-        Matcher matcher = DATE_PATTERN.matcher(text);
-
-        while (matcher.find()) {
-            try {
-                LocalDate date = LocalDate.parse(matcher.group(1),
-                        DateTimeFormatter.ofPattern("dd.MM.yyyy"));
-                dates.add(date);
-            } catch (DateTimeParseException e) {
-                // Пропускаем некорректные даты
-                logger.debug("Ошибка парсинга даты: {}", matcher.group(1));
-            }
-        }
+    private List<LocalDate> extractAllDates(ProtocolPageLexer.PageTokens pageTokens) {
+        List<LocalDate> dates = pageTokens.dates();
 
         // Сортируем по возрастанию
         dates.sort(Comparator.naturalOrder());
@@ -581,129 +773,10 @@ public class PdfProcessingService {
     /**
      * Извлечение номера протокола из страницы
      */
-    private String extractProtocolNumberFromPage(String pageText) {
-        // Ищем последовательности из 8-12 цифр (номера протоколов)
-        Matcher matcher = REG_NUM_PATTERN.matcher(pageText);
-
-        while (matcher.find()) {
-            String number = matcher.group();
-            // Фильтруем слишком короткие и слишком длинные номера
-            if (number.length() >= 6 && number.length() <= 12) {
-                return number;
-            }
-        }
-
-        return null;
-    }
-
-    /**
-     * Определение направления обучения на странице
-     */
-    private TrainingDirection determineTrainingDirection(String pageText, List<TrainingDirection> allDirections) {
-        String lowerText = pageText.toLowerCase();
-
-        // Карта для подсчета совпадений
-        Map<TrainingDirection, Integer> matchScores = new HashMap<>();
-
-        for (TrainingDirection direction : allDirections) {
-            int score = 0;
-
-            // Проверяем name (короткое название)
-            if (direction.getName() != null) {
-                String lowerName = direction.getName().toLowerCase();
-                if (lowerText.contains(lowerName)) {
-                    score += 10;
-                }
-            }
-
-            // Проверяем description (полное описание)
-            if (direction.getDescription() != null) {
-                String lowerDesc = direction.getDescription().toLowerCase();
-
-                // Ищем ключевые слова из описания
-                if (lowerText.contains(lowerDesc)) {
-                    score += 100; // Полное совпадение!
-                } else {
-                    // Ищем частичные совпадения
-                    String[] keywords = lowerDesc.split("[,\\.;\\s]+");
-                    for (String keyword : keywords) {
-                        keyword = keyword.trim();
-                        if (keyword.length() > 3 && lowerText.contains(keyword)) {
-                            score += 5;
-                        }
-                    }
-                }
-            }
-
-            // Проверяем ключевые слова для разных типов программ
-            if (lowerText.contains("электроустановк")) {
-                if (direction.getName() != null && direction.getName().toLowerCase().contains("электро")) {
-                    score += 20;
-                }
-                if (direction.getDescription() != null && direction.getDescription().toLowerCase().contains("электро")) {
-                    score += 20;
-                }
-            }
-
-            if (lowerText.contains("сосуд") && lowerText.contains("давлен")) {
-                if (direction.getName() != null && direction.getName().toLowerCase().contains("сосуд")) {
-                    score += 20;
-                }
-            }
-
-            if (lowerText.contains("огнев")) {
-                if (direction.getName() != null && direction.getName().toLowerCase().contains("огнев")) {
-                    score += 20;
-                }
-            }
-
-            if (lowerText.contains("газоопасн")) {
-                if (direction.getName() != null && direction.getName().toLowerCase().contains("газоопасн")) {
-                    score += 20;
-                }
-            }
-
-            if (lowerText.contains("первая помощь")) {
-                if (direction.getName() != null && direction.getName().toLowerCase().contains("перв")) {
-                    score += 30;
-                }
-            }
-
-            if (lowerText.contains("средств индивидуальной защиты") || lowerText.contains("сиз")) {
-                if (direction.getName() != null && direction.getName().toLowerCase().contains("сиз")) {
-                    score += 30;
-                }
-            }
-
-            if (lowerText.contains("общие вопросы охраны труда") || lowerText.contains("системы управления охраной труда")) {
-                if (direction.getName() != null && direction.getName().toLowerCase().contains("общие")) {
-                    score += 30;
-                }
-            }
-
-            if (lowerText.contains("вредных и опасных производственных факторов")) {
-                if (direction.getName() != null && direction.getName().toLowerCase().contains("вредн")) {
-                    score += 30;
-                }
-            }
-
-            if (score > 0) {
-                matchScores.put(direction, score);
-            }
-        }
-
-        // Находим направление с максимальным score
-        TrainingDirection bestMatch = null;
-        int maxScore = 0;
-
-        for (Map.Entry<TrainingDirection, Integer> entry : matchScores.entrySet()) {
-            if (entry.getValue() > maxScore) {
-                maxScore = entry.getValue();
-                bestMatch = entry.getKey();
-            }
-        }
-
-        return bestMatch;
+    private String extractProtocolNumberFromPage(ProtocolPageLexer.PageTokens pageTokens) {
+        List<ProtocolPageLexer.Token> numbers =
+                pageTokens.numbers(MIN_PROTOCOL_NUMBER_LENGTH, MAX_PROTOCOL_NUMBER_LENGTH);
+        return numbers.isEmpty() ? null : numbers.get(0).getText();
     }
 
     /**
@@ -744,18 +817,6 @@ public class PdfProcessingService {
         return record;
     }
 
-    /**
-     * Нормализация текста для поиска
-     */
-    private String normalizeForSearch(String text) {
-        if (text == null) return "";
-        return text.toLowerCase()
-                .replace("ё", "е")
-                .replaceAll("[^а-яё\\s]", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
-    }
-
     /**
      * Проверка на дубликаты
      */
@@ -780,41 +841,6 @@ public class PdfProcessingService {
         return false;
     }
 
-    /**
-     * Алгоритм Левенштейна для нечеткого сравнения
-     */
-    private double calculateSimilarity(String s1, String s2) {
-        if (s1 == null || s2 == null) return 0.0;
-
-        s1 = s1.toLowerCase().replaceAll("[^а-яё]", "");
-        s2 = s2.toLowerCase().replaceAll("[^а-яё]", "");
-
-        if (s1.isEmpty() || s2.isEmpty()) return 0.0;
-
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        for (int i = 0; i <= s1.length(); i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= s2.length(); j++) {
-            dp[0][j] = j;
-        }
-
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
-                dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                        dp[i - 1][j - 1] + cost
-                );
-            }
-        }
-
-        int distance = dp[s1.length()][s2.length()];
-        int maxLength = Math.max(s1.length(), s2.length());
-        if (maxLength == 0) return 1.0;
-        return 1.0 - (double) distance / maxLength;
-    }
-
     /**
      * Получить все PDF документы
      */
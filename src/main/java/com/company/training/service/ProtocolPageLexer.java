@@ -0,0 +1,412 @@
+package com.company.training.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Лексер страницы протокола: за один проход по тексту выделяет даты, числа,
+ * слова кириллицей с заглавной буквы и ключевые слова (без учета регистра).
+ * В том же проходе строятся текст в нижнем регистре (для классификатора направлений)
+ * и нормализованный текст (для индекса ФИО), так что страница не просматривается заново.
+ * Все извлечения полей страницы (PdfProcessingService, ParsingDebugService,
+ * PdfPageAnalyzer) работают с одним и тем же потоком токенов, поэтому находят
+ * одинаковые даты, номера и ФИО.
+ */
+@Component
+public class ProtocolPageLexer {
+
+    /**
+     * Ключевые слова программ обучения
+     */
+    public static final List<String> PROGRAM_KEYWORDS = List.of(
+            "электроустановк", "сосуд", "давлен", "огнев", "газоопасн",
+            "первая помощь", "оказание первой", "средств индивидуальной защиты", "сиз",
+            "вредных и опасных", "производственных факторов",
+            "общие вопросы охраны труда", "системы управления охраной труда",
+            "безопасные методы", "работ повышенной опасности"
+    );
+
+    /**
+     * Ключевые слова для определения типа документа
+     */
+    public static final List<String> DOCUMENT_KEYWORDS = List.of(
+            "протокол проверки знаний", "протокол", "проверка знаний", "охрана труда",
+            "аттестация", "свидетельство", "программ"
+    );
+
+    private final AhoCorasickMatcher<String> keywordMatcher;
+    private final Set<String> vocabulary;
+
+    public ProtocolPageLexer() {
+        Set<String> keywords = new LinkedHashSet<>(PROGRAM_KEYWORDS);
+        keywords.addAll(DOCUMENT_KEYWORDS);
+
+        AhoCorasickMatcher.Builder<String> builder = AhoCorasickMatcher.builder();
+        for (String keyword : keywords) {
+            builder.add(keyword, keyword);
+        }
+        this.keywordMatcher = builder.build();
+        this.vocabulary = Collections.unmodifiableSet(keywords);
+    }
+
+    public PageTokens tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        List<AhoCorasickMatcher.Hit<String>> keywordHits = new ArrayList<>();
+        AhoCorasickMatcher.Cursor<String> cursor = keywordMatcher.cursor();
+        StringBuilder lowerText = new StringBuilder(text.length());
+        StringBuilder normalizedText = new StringBuilder(text.length());
+
+        // Что было между предыдущим токеном и текущим: нужно для склейки ФИО из слов
+        boolean sawSpace = false;
+        boolean sawOther = false;
+
+        int length = text.length();
+        int position = 0;
+        while (position < length) {
+            char c = text.charAt(position);
+            int end;
+            Token token = null;
+
+            if (isDigit(c)) {
+                int runEnd = skipDigits(text, position);
+                int dateEnd = matchDate(text, position, runEnd);
+                if (dateEnd > 0) {
+                    token = new Token(TokenType.DATE, text.substring(position, dateEnd), position, dateEnd);
+                    token.date = parseDate(text, position, dateEnd);
+                    end = dateEnd;
+                } else {
+                    // Число должно стоять отдельно: "12345" - да, "А12345" или "12345_1" - нет
+                    boolean bounded = (position == 0 || !isWordChar(text.charAt(position - 1)))
+                            && (runEnd == length || !isWordChar(text.charAt(runEnd)));
+                    if (bounded) {
+                        token = new Token(TokenType.NUMBER, text.substring(position, runEnd), position, runEnd);
+                    } else {
+                        sawOther = true;
+                    }
+                    end = runEnd;
+                }
+            } else if (isCyrillic(c)) {
+                int runEnd = position + 1;
+                boolean restLower = true;
+                while (runEnd < length && isCyrillic(text.charAt(runEnd))) {
+                    restLower &= isLowerCyrillic(text.charAt(runEnd));
+                    runEnd++;
+                }
+                if (isUpperCyrillic(c) && restLower && runEnd - position > 1) {
+                    token = new Token(TokenType.CAPITALIZED_WORD, text.substring(position, runEnd), position, runEnd);
+                } else {
+                    // Слово не с заглавной буквы разрывает последовательность слов ФИО
+                    sawOther = true;
+                }
+                end = runEnd;
+            } else {
+                end = position + 1;
+                if (isSpace(c)) {
+                    sawSpace = true;
+                } else {
+                    sawOther = true;
+                }
+            }
+
+            if (token != null) {
+                token.afterSpace = !tokens.isEmpty() && sawSpace && !sawOther;
+                tokens.add(token);
+                sawSpace = false;
+                sawOther = false;
+            }
+
+            for (int i = position; i < end; i++) {
+                char lower = Character.toLowerCase(text.charAt(i));
+                cursor.next(lower, i, keywordHits);
+                lowerText.append(lower);
+                appendNormalized(normalizedText, lower);
+            }
+            position = end;
+        }
+        int normalizedLength = normalizedText.length();
+        if (normalizedLength > 0 && normalizedText.charAt(normalizedLength - 1) == ' ') {
+            normalizedText.setLength(normalizedLength - 1);
+        }
+
+        List<Token> keywords = new ArrayList<>(keywordHits.size());
+        for (AhoCorasickMatcher.Hit<String> hit : keywordHits) {
+            keywords.add(new Token(TokenType.KEYWORD, hit.getValue(), hit.getStart(), hit.getEnd()));
+        }
+        return new PageTokens(text, lowerText.toString(), normalizedText.toString(), tokens, keywords, vocabulary);
+    }
+
+    /**
+     * То же, что EmployeeNameIndex.normalize, по одному символу: ё -> е, все кроме
+     * кириллицы - пробел, подряд идущие пробелы схлопываются, в начале пробелов нет
+     */
+    private static void appendNormalized(StringBuilder normalized, char lower) {
+        if (isLowerCyrillic(lower)) {
+            normalized.append(lower == 'ё' ? 'е' : lower);
+        } else if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+            normalized.append(' ');
+        }
+    }
+
+    /**
+     * Дата "д.м.гггг" (день и месяц из одной-двух цифр), начиная с серии цифр [start, runEnd).
+     * Возвращает конец даты или -1
+     */
+    private static int matchDate(String text, int start, int runEnd) {
+        if (runEnd - start > 2) {
+            return -1;
+        }
+        int monthStart = runEnd + 1;
+        if (monthStart >= text.length() || text.charAt(runEnd) != '.' || !isDigit(text.charAt(monthStart))) {
+            return -1;
+        }
+        int monthEnd = skipDigits(text, monthStart);
+        if (monthEnd - monthStart > 2) {
+            return -1;
+        }
+        int yearStart = monthEnd + 1;
+        if (yearStart >= text.length() || text.charAt(monthEnd) != '.') {
+            return -1;
+        }
+        int yearEnd = skipDigits(text, yearStart);
+        return yearEnd - yearStart >= 4 ? yearStart + 4 : -1;
+    }
+
+    private static LocalDate parseDate(String text, int start, int end) {
+        int firstDot = text.indexOf('.', start);
+        int secondDot = text.indexOf('.', firstDot + 1);
+        try {
+            return LocalDate.of(
+                    Integer.parseInt(text, secondDot + 1, end, 10),
+                    Integer.parseInt(text, firstDot + 1, secondDot, 10),
+                    Integer.parseInt(text, start, firstDot, 10));
+        } catch (DateTimeException e) {
+            // Например 31.02 - токен даты есть, значения нет
+            return null;
+        }
+    }
+
+    private static int skipDigits(String text, int position) {
+        while (position < text.length() && isDigit(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isUpperCyrillic(char c) {
+        return (c >= 'А' && c <= 'Я') || c == 'Ё';
+    }
+
+    private static boolean isLowerCyrillic(char c) {
+        return (c >= 'а' && c <= 'я') || c == 'ё';
+    }
+
+    private static boolean isCyrillic(char c) {
+        return isUpperCyrillic(c) || isLowerCyrillic(c);
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    public enum TokenType {
+        DATE,
+        NUMBER,
+        CAPITALIZED_WORD,
+        KEYWORD,
+        // Несколько слов с заглавной буквы подряд, собирается из CAPITALIZED_WORD
+        NAME
+    }
+
+    /**
+     * Токен страницы: [start, end) в исходном тексте
+     */
+    public static class Token {
+        private final TokenType type;
+        private final String text;
+        private final int start;
+        private final int end;
+        private LocalDate date;
+        private boolean afterSpace;
+
+        private Token(TokenType type, String text, int start, int end) {
+            this.type = type;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        public TokenType getType() { return type; }
+        public String getText() { return text; }
+        public int getStart() { return start; }
+        public int getEnd() { return end; }
+        public int length() { return end - start; }
+
+        /**
+         * Значение даты для DATE; null, если такой даты не бывает
+         */
+        public LocalDate getDate() { return date; }
+    }
+
+    /**
+     * Результат разбора страницы
+     */
+    public static class PageTokens {
+        private final String text;
+        private final String lowerText;
+        private final String normalizedText;
+        private final List<Token> tokens;
+        private final List<Token> keywords;
+        private final Set<String> vocabulary;
+        private Set<String> foundKeywords;
+
+        private PageTokens(String text, String lowerText, String normalizedText,
+                           List<Token> tokens, List<Token> keywords, Set<String> vocabulary) {
+            this.text = text;
+            this.lowerText = lowerText;
+            this.normalizedText = normalizedText;
+            this.tokens = tokens;
+            this.keywords = keywords;
+            this.vocabulary = vocabulary;
+        }
+
+        public String getText() { return text; }
+
+        /**
+         * Текст в нижнем регистре, позиции совпадают с исходным
+         */
+        public String getLowerText() { return lowerText; }
+
+        /**
+         * Текст, нормализованный как EmployeeNameIndex.normalize
+         */
+        public String getNormalizedText() { return normalizedText; }
+
+        /**
+         * Даты, числа и слова в порядке следования в тексте
+         */
+        public List<Token> getTokens() { return tokens; }
+
+        /**
+         * Вхождения ключевых слов в порядке позиции их конца
+         */
+        public List<Token> getKeywords() { return keywords; }
+
+        public List<Token> ofType(TokenType type) {
+            List<Token> result = new ArrayList<>();
+            for (Token token : tokens) {
+                if (token.type == type) {
+                    result.add(token);
+                }
+            }
+            return result;
+        }
+
+        public boolean has(TokenType type) {
+            for (Token token : tokens) {
+                if (token.type == type) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Корректные даты в порядке следования в тексте
+         */
+        public List<LocalDate> dates() {
+            List<LocalDate> dates = new ArrayList<>();
+            for (Token token : tokens) {
+                if (token.type == TokenType.DATE && token.date != null) {
+                    dates.add(token.date);
+                }
+            }
+            return dates;
+        }
+
+        /**
+         * Числа заданной длины (в цифрах) в порядке следования в тексте
+         */
+        public List<Token> numbers(int minLength, int maxLength) {
+            List<Token> numbers = new ArrayList<>();
+            for (Token token : tokens) {
+                if (token.type == TokenType.NUMBER && token.length() >= minLength && token.length() <= maxLength) {
+                    numbers.add(token);
+                }
+            }
+            return numbers;
+        }
+
+        /**
+         * Слова с заглавной буквы длиной не меньше minLength
+         */
+        public List<String> capitalizedWords(int minLength) {
+            List<String> words = new ArrayList<>();
+            for (Token token : tokens) {
+                if (token.type == TokenType.CAPITALIZED_WORD && token.length() >= minLength) {
+                    words.add(token.text);
+                }
+            }
+            return words;
+        }
+
+        /**
+         * Возможные ФИО: от minWords до maxWords слов с заглавной буквы, разделенных только пробелами.
+         * Длинная цепочка слов делится на части по maxWords слов без перекрытия
+         */
+        public List<Token> names(int minWords, int maxWords) {
+            List<Token> names = new ArrayList<>();
+            int chainStart = -1;
+            int chainLength = 0;
+            for (int i = 0; i <= tokens.size(); i++) {
+                Token token = i < tokens.size() ? tokens.get(i) : null;
+                boolean word = token != null && token.type == TokenType.CAPITALIZED_WORD;
+                if (word && chainLength > 0 && token.afterSpace && chainLength < maxWords) {
+                    chainLength++;
+                    continue;
+                }
+                if (chainLength >= minWords) {
+                    Token first = tokens.get(chainStart);
+                    Token last = tokens.get(chainStart + chainLength - 1);
+                    names.add(new Token(TokenType.NAME, text.substring(first.start, last.end),
+                            first.start, last.end));
+                }
+                chainStart = word ? i : -1;
+                chainLength = word ? 1 : 0;
+            }
+            return names;
+        }
+
+        /**
+         * Есть ли на странице ключевое слово (без учета регистра).
+         * Слово должно быть в словаре лексера
+         */
+        public boolean hasKeyword(String keyword) {
+            if (!vocabulary.contains(keyword)) {
+                throw new IllegalArgumentException("Ключевое слово не входит в словарь лексера: " + keyword);
+            }
+            if (foundKeywords == null) {
+                foundKeywords = new HashSet<>();
+                for (Token token : keywords) {
+                    foundKeywords.add(token.text);
+                }
+            }
+            return foundKeywords.contains(keyword);
+        }
+    }
+}
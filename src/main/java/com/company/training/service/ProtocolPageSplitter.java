@@ -0,0 +1,118 @@
+package com.company.training.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нарезка исходного PDF протокола на одностраничные файлы.
+ * Исходный документ открывается один раз на весь набор страниц: шрифты и
+ * изображения, общие для страниц, разбираются один раз и переиспользуются
+ * во всех выходных файлах. Нарезка одного документа идет в одном потоке
+ * (PDDocument не потокобезопасен), но параллельно вызывающему коду.
+ * Страница собирается в памяти (один буфер на весь документ) и пишется в хранилище
+ * протоколов одним вызовом put: в хранилище не бывает недописанных страниц.
+ */
+@Component
+public class ProtocolPageSplitter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProtocolPageSplitter.class);
+
+    @Autowired
+    private ProtocolStorage protocolStorage;
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "pdf-split-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Нарезка в фоновом потоке; результат - число записанных файлов
+     */
+    public CompletableFuture<Integer> splitAsync(File sourcePdf, List<PageExtraction> extractions) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return split(sourcePdf, extractions);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    public int split(File sourcePdf, List<PageExtraction> extractions) throws IOException {
+        if (extractions.isEmpty()) {
+            return 0;
+        }
+        long startedAt = System.currentTimeMillis();
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (PDDocument sourceDoc = Loader.loadPDF(sourcePdf)) {
+            for (PageExtraction extraction : extractions) {
+                int pageNumber = extraction.getPageNumber();
+                if (pageNumber < 1 || pageNumber > sourceDoc.getNumberOfPages()) {
+                    throw new IllegalArgumentException("Неверный номер страницы: " + pageNumber);
+                }
+
+                // Получаем нужную страницу (индексация с 0)
+                PDPage page = sourceDoc.getPage(pageNumber - 1);
+                // Наследуемые от дерева страниц атрибуты переносим в саму страницу,
+                // иначе в новом документе она потеряет ресурсы и размеры
+                page.setResources(page.getResources());
+                page.setMediaBox(page.getMediaBox());
+                page.setCropBox(page.getCropBox());
+                page.setRotation(page.getRotation());
+
+                buffer.reset();
+                try (PDDocument singlePageDoc = new PDDocument()) {
+                    singlePageDoc.addPage(page);
+                    singlePageDoc.save(buffer);
+                }
+                protocolStorage.put(extraction.getTarget(), new ByteArrayInputStream(buffer.toByteArray()));
+                logger.debug("Страница {} извлечена в файл: {}", pageNumber, extraction.getTarget());
+            }
+        }
+
+        logger.info("Из {} извлечено страниц: {} за {} мс", sourcePdf.getName(), extractions.size(),
+                System.currentTimeMillis() - startedAt);
+        return extractions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Страница исходного PDF (номер с 1) и ключ в хранилище протоколов, под которым ее записать
+     */
+    public static class PageExtraction {
+        private final int pageNumber;
+        private final String target;
+
+        public PageExtraction(int pageNumber, String target) {
+            this.pageNumber = pageNumber;
+            this.target = target;
+        }
+
+        public int getPageNumber() { return pageNumber; }
+        public String getTarget() { return target; }
+    }
+}
@@ -0,0 +1,234 @@
+package com.company.training.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Хранилище файлов протоколов.
+ * Ключ - имя файла без каталогов, то самое, что лежит в TrainingRecord.filePath.
+ * - store() адресует содержимое по SHA-256: ключ = хеш + расширение, одинаковые файлы хранятся один раз
+ * - put() пишет под заданным именем (страницы протоколов из PDF), перезаписывая прежнее содержимое
+ * Запись всегда идет потоком с подсчетом контрольной суммы, объект становится виден
+ * только целиком. Внутри хранилища объекты раскладываются по каталогам ab/cd/ по первым
+ * символам хеша, чтобы ни в одном каталоге не копились сотни тысяч файлов.
+ */
+public interface ProtocolStorage {
+
+    // Имя файла без разделителей каталогов; старые имена могли получить расширение с пробелами
+    Pattern KEY_PATTERN = Pattern.compile("[^/\\\\\\p{Cntrl}]{1,255}");
+    Pattern CONTENT_KEY_PATTERN = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+    Pattern EXTENSION_PATTERN = Pattern.compile("\\.[a-z0-9]{1,10}");
+
+    /**
+     * Сохраняет содержимое под ключом SHA-256 + расширение; если такое содержимое уже есть,
+     * повторно не пишет
+     */
+    StoredObject store(InputStream content, String extension) throws IOException;
+
+    /**
+     * Сохраняет содержимое под заданным ключом, заменяя существующий объект
+     */
+    StoredObject put(String key, InputStream content) throws IOException;
+
+    /**
+     * Открывает объект на чтение; NoSuchFileException, если его нет
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Открывает объект на чтение с указанного байта (для запросов Range)
+     */
+    default InputStream open(String key, long offset) throws IOException {
+        InputStream in = open(key);
+        try {
+            in.skipNBytes(offset);
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Открывает диапазон объекта [start, end] включительно (для запросов Range).
+     * Поток заканчивается на байте end, даже если хранилище прислало больше
+     */
+    default InputStream open(String key, long start, long end) throws IOException {
+        return new BoundedInputStream(open(key, start), end - start + 1);
+    }
+
+    Optional<StoredObject> stat(String key) throws IOException;
+
+    /**
+     * Удаляет объект; false, если его не было
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Файл объекта на локальном диске, если хранилище его предоставляет (sendfile, PDFBox)
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Обход всех объектов хранилища; размер и время изменения берутся из листинга,
+     * без отдельного запроса на каждый объект
+     */
+    void forEach(Consumer<StoredObject> action) throws IOException;
+
+    /**
+     * Сверяет содержимое объекта с его ключом. Для именованных ключей хеш сравнивать
+     * не с чем, проверяется только наличие объекта
+     */
+    default boolean verify(String key) throws IOException {
+        if (!isContentKey(key)) {
+            return stat(key).isPresent();
+        }
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(open(key), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return key.startsWith(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    static boolean isContentKey(String key) {
+        return key != null && CONTENT_KEY_PATTERN.matcher(key).matches();
+    }
+
+    /**
+     * Ключ приходит в том числе из URL: никаких каталогов и "..", только имя файла
+     */
+    static void checkKey(String key) {
+        if (key == null || key.equals(".") || key.equals("..") || !KEY_PATTERN.matcher(key).matches()) {
+            throw new SecurityException("Недопустимое имя файла протокола: " + key);
+        }
+    }
+
+    /**
+     * Расширение для ключа по содержимому: ".pdf", ".docx"... или пустая строка
+     */
+    static String normalizeExtension(String extension) {
+        if (extension == null) {
+            return "";
+        }
+        String lower = extension.toLowerCase();
+        return EXTENSION_PATTERN.matcher(lower).matches() ? lower : "";
+    }
+
+    /**
+     * Каталог объекта внутри хранилища, "ab/cd". Для ключей по содержимому берется начало
+     * самого ключа, для именованных - начало SHA-256 от имени
+     */
+    static String shardPrefix(String key) {
+        String hex = isContentKey(key)
+                ? key
+                : HexFormat.of().formatHex(newSha256().digest(key.getBytes(StandardCharsets.UTF_8)));
+        return hex.substring(0, 2) + "/" + hex.substring(2, 4);
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Объект хранилища. sha256 известен только сразу после записи, при листинге он null.
+     * replacedSize - размер объекта с тем же ключом до записи (ABSENT, если его не было):
+     * по нему считаются приращения статистики хранилища
+     */
+    class StoredObject {
+        public static final long ABSENT = -1;
+
+        private final String key;
+        private final long size;
+        private final long lastModified;
+        private final String sha256;
+        private final long replacedSize;
+
+        public StoredObject(String key, long size, long lastModified, String sha256) {
+            this(key, size, lastModified, sha256, ABSENT);
+        }
+
+        public StoredObject(String key, long size, long lastModified, String sha256, long replacedSize) {
+            this.key = key;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+            this.replacedSize = replacedSize;
+        }
+
+        public String getKey() { return key; }
+        public long getSize() { return size; }
+        public long getLastModified() { return lastModified; }
+        public String getSha256() { return sha256; }
+        public long getReplacedSize() { return replacedSize; }
+    }
+
+    /**
+     * Поток, который отдает не больше limit байт исходного
+     */
+    class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        public BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
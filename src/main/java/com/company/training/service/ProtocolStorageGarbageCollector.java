@@ -0,0 +1,263 @@
+package com.company.training.service;
+
+import com.company.training.repository.TrainingRecordRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Удаление файлов протоколов, на которые не ссылается ни одна запись об обучении.
+ * Хранилище обходится потоком; кандидаты (старше min-age) собираются пачками,
+ * и для каждой пачки одним запросом по индексу file_path выясняется, какие из них
+ * еще нужны - ни записи, ни полный список имен в память не загружаются.
+ * Удаление ограничено по скорости, чтобы не нагружать диск или S3 в рабочее время;
+ * в режиме dry-run файлы только подсчитываются. Итог последнего запуска доступен в getLastReport.
+ */
+@Service
+public class ProtocolStorageGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProtocolStorageGarbageCollector.class);
+
+    // Сколько имен проверять одним запросом к БД
+    private static final int BATCH_SIZE = 500;
+
+    // Сколько удаленных имен сохранять в отчете
+    private static final int REPORT_SAMPLE_SIZE = 100;
+
+    @Autowired
+    private ProtocolStorage protocolStorage;
+
+    @Autowired
+    private TrainingRecordRepository trainingRecordRepository;
+
+    private final Duration minAge;
+    private final double deletesPerSecond;
+    private final boolean defaultDryRun;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Проход с ограничением скорости длится долго: выполняем его в своем потоке,
+    // а не в общем потоке @Scheduled и не в потоке запроса
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "protocol-gc");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Report lastReport;
+
+    public ProtocolStorageGarbageCollector(@Value("${protocol.storage.gc.min-age-days:30}") long minAgeDays,
+                                           @Value("${protocol.storage.gc.deletes-per-second:20}") double deletesPerSecond,
+                                           @Value("${protocol.storage.gc.dry-run:true}") boolean defaultDryRun) {
+        this.minAge = Duration.ofDays(minAgeDays);
+        this.deletesPerSecond = deletesPerSecond;
+        this.defaultDryRun = defaultDryRun;
+    }
+
+    @Scheduled(cron = "${protocol.storage.gc.cron:0 0 4 * * *}")
+    public void collectScheduled() {
+        collectAsync();
+    }
+
+    /**
+     * Сборка в фоне с режимом из protocol.storage.gc.dry-run
+     */
+    public CompletableFuture<Report> collectAsync() {
+        return collectAsync(defaultDryRun);
+    }
+
+    /**
+     * Сборка в фоне, результат - в getLastReport
+     */
+    public CompletableFuture<Report> collectAsync(boolean dryRun) {
+        return CompletableFuture.supplyAsync(() -> collect(dryRun), executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Один проход сборки. Если проход уже идет, возвращает null
+     */
+    public Report collect(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Сборка неиспользуемых файлов протоколов уже выполняется");
+            return null;
+        }
+        Report report = new Report(dryRun);
+        try {
+            Instant cutoff = Instant.now().minus(minAge);
+            RateLimiter rateLimiter = new RateLimiter(deletesPerSecond);
+            List<ProtocolStorage.StoredObject> batch = new ArrayList<>(BATCH_SIZE);
+
+            protocolStorage.forEach(file -> {
+                report.scannedFiles++;
+                report.scannedBytes += file.getSize();
+                // Свежие файлы не трогаем: запись, ссылающаяся на них, может быть еще не закоммичена
+                if (!Instant.ofEpochMilli(file.getLastModified()).isBefore(cutoff)) {
+                    return;
+                }
+                batch.add(file);
+                if (batch.size() == BATCH_SIZE) {
+                    sweep(batch, report, rateLimiter, cutoff);
+                    batch.clear();
+                }
+            });
+            sweep(batch, report, rateLimiter, cutoff);
+        } catch (IOException | RuntimeException e) {
+            report.error = e.getMessage();
+            logger.error("Ошибка при сборке неиспользуемых файлов протоколов", e);
+        } finally {
+            report.finishedAt = Instant.now();
+            lastReport = report;
+            running.set(false);
+        }
+
+        logger.info("Сборка неиспользуемых файлов протоколов{}: просмотрено {}, без ссылок {} ({} байт), " +
+                        "удалено {} ({} байт), ошибок {} за {} мс",
+                dryRun ? " (dry-run)" : "", report.scannedFiles, report.orphanedFiles, report.orphanedBytes,
+                report.deletedFiles, report.reclaimedBytes, report.failedFiles,
+                Duration.between(report.startedAt, report.finishedAt).toMillis());
+        return report;
+    }
+
+    private void sweep(List<ProtocolStorage.StoredObject> batch, Report report, RateLimiter rateLimiter,
+                       Instant cutoff) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        batch.forEach(file -> keys.add(file.getKey()));
+        Set<String> referenced = new HashSet<>(trainingRecordRepository.findReferencedFilePaths(keys));
+
+        for (ProtocolStorage.StoredObject file : batch) {
+            if (referenced.contains(file.getKey())) {
+                continue;
+            }
+            report.orphanedFiles++;
+            report.orphanedBytes += file.getSize();
+            if (report.dryRun) {
+                report.sample(file.getKey());
+                continue;
+            }
+
+            rateLimiter.acquire();
+            try {
+                // С момента обхода файл могли загрузить заново (store обновляет дату у дубликата)
+                Optional<ProtocolStorage.StoredObject> current = protocolStorage.stat(file.getKey());
+                if (current.isEmpty() || !Instant.ofEpochMilli(current.get().getLastModified()).isBefore(cutoff)) {
+                    report.orphanedFiles--;
+                    report.orphanedBytes -= file.getSize();
+                    continue;
+                }
+                if (protocolStorage.delete(file.getKey())) {
+                    report.deletedFiles++;
+                    report.reclaimedBytes += file.getSize();
+                    report.sample(file.getKey());
+                    logger.debug("Удален неиспользуемый файл протокола: {}", file.getKey());
+                }
+            } catch (IOException | RuntimeException e) {
+                report.failedFiles++;
+                logger.warn("Не удалось удалить файл протокола {}: {}", file.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Равномерный темп удаления: не больше permitsPerSecond в секунду
+     */
+    static class RateLimiter {
+        private final long intervalNanos;
+        private long nextPermitAt = System.nanoTime();
+
+        RateLimiter(double permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? (long) (1_000_000_000L / permitsPerSecond) : 0;
+        }
+
+        void acquire() {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            long waitNanos = nextPermitAt - now;
+            nextPermitAt = Math.max(now, nextPermitAt) + intervalNanos;
+            if (waitNanos > 0) {
+                try {
+                    Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Сборка файлов протоколов прервана", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Итог прохода сборки
+     */
+    public static class Report {
+        private final boolean dryRun;
+        private final Instant startedAt = Instant.now();
+        private Instant finishedAt;
+        private long scannedFiles;
+        private long scannedBytes;
+        private long orphanedFiles;
+        private long orphanedBytes;
+        private long deletedFiles;
+        private long reclaimedBytes;
+        private long failedFiles;
+        private String error;
+        // В dry-run - файлы, которые были бы удалены
+        private final List<String> sampleFiles = new ArrayList<>();
+
+        Report(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        private void sample(String key) {
+            if (sampleFiles.size() < REPORT_SAMPLE_SIZE) {
+                sampleFiles.add(key);
+            }
+        }
+
+        public boolean isDryRun() { return dryRun; }
+        public Instant getStartedAt() { return startedAt; }
+        public Instant getFinishedAt() { return finishedAt; }
+        public long getScannedFiles() { return scannedFiles; }
+        public long getScannedBytes() { return scannedBytes; }
+        public long getOrphanedFiles() { return orphanedFiles; }
+        public long getOrphanedBytes() { return orphanedBytes; }
+        public long getDeletedFiles() { return deletedFiles; }
+        public long getReclaimedBytes() { return reclaimedBytes; }
+        public long getFailedFiles() { return failedFiles; }
+        public String getError() { return error; }
+        public List<String> getSampleFiles() { return sampleFiles; }
+    }
+}
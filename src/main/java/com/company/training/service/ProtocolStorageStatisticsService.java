@@ -0,0 +1,212 @@
+package com.company.training.service;
+
+import com.company.training.entity.ProtocolStorageStat;
+import com.company.training.repository.ProtocolStorageStatRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Статистика хранилища протоколов: число файлов и байт по типам.
+ * Запись и удаление файлов копят приращения в памяти (record), раз в несколько секунд
+ * они переносятся в таблицу protocol_storage_stats одним UPDATE на категорию (flush).
+ * Чтение - четыре строки по первичному ключу плюс еще не сброшенные приращения,
+ * время ответа не зависит от числа файлов. Расхождения (файлы, измененные в обход
+ * приложения, падение до сброса) исправляет сверка обходом хранилища по расписанию (reconcile).
+ */
+@Service
+public class ProtocolStorageStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProtocolStorageStatisticsService.class);
+
+    private static final ProtocolStorageStat.Category[] CATEGORIES = ProtocolStorageStat.Category.values();
+
+    @Autowired
+    private ProtocolStorageStatRepository protocolStorageStatRepository;
+
+    // Хранилище само сообщает сюда о записях, поэтому берется лениво
+    @Autowired
+    private ObjectProvider<ProtocolStorage> protocolStorage;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Несброшенные приращения по индексу категории
+    private final AtomicLongArray pendingFiles = new AtomicLongArray(CATEGORIES.length);
+    private final AtomicLongArray pendingBytes = new AtomicLongArray(CATEGORIES.length);
+
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+
+    /**
+     * Учесть изменение хранилища: files и bytes могут быть отрицательными
+     */
+    public void record(String fileName, long files, long bytes) {
+        if (files == 0 && bytes == 0) {
+            return;
+        }
+        int index = ProtocolStorageStat.Category.of(fileName).ordinal();
+        pendingFiles.addAndGet(index, files);
+        pendingBytes.addAndGet(index, bytes);
+    }
+
+    public Statistics getStatistics() {
+        Map<ProtocolStorageStat.Category, Counts> counts = new EnumMap<>(ProtocolStorageStat.Category.class);
+        LocalDateTime reconciledAt = null;
+        for (ProtocolStorageStat stat : protocolStorageStatRepository.findAll()) {
+            counts.put(stat.getCategory(), new Counts(stat.getFileCount(), stat.getTotalBytes()));
+            if (stat.getReconciledAt() != null && (reconciledAt == null || stat.getReconciledAt().isBefore(reconciledAt))) {
+                reconciledAt = stat.getReconciledAt();
+            }
+        }
+        for (ProtocolStorageStat.Category category : CATEGORIES) {
+            Counts stored = counts.getOrDefault(category, new Counts(0, 0));
+            counts.put(category, new Counts(stored.getFiles() + pendingFiles.get(category.ordinal()),
+                    stored.getBytes() + pendingBytes.get(category.ordinal())));
+        }
+        return new Statistics(counts, reconciledAt);
+    }
+
+    /**
+     * Перенос накопленных приращений в таблицу
+     */
+    @Scheduled(fixedDelayString = "${protocol.storage.stats.flush-interval-ms:5000}")
+    public void flush() {
+        for (ProtocolStorageStat.Category category : CATEGORIES) {
+            int index = category.ordinal();
+            long files = pendingFiles.getAndSet(index, 0);
+            long bytes = pendingBytes.getAndSet(index, 0);
+            if (files == 0 && bytes == 0) {
+                continue;
+            }
+            try {
+                if (protocolStorageStatRepository.addDelta(category, files, bytes) == 0) {
+                    // Строки еще нет: ее создаст первая сверка, приращение уже будет в ней учтено
+                    logger.debug("Счетчики {} еще не созданы, ждем сверки", category);
+                }
+            } catch (RuntimeException e) {
+                // Вернем приращение, чтобы не потерять его до следующей попытки
+                pendingFiles.addAndGet(index, files);
+                pendingBytes.addAndGet(index, bytes);
+                logger.warn("Не удалось сохранить статистику хранилища: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * При первом запуске таблица пуста: заполняем ее обходом хранилища
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (protocolStorageStatRepository.count() < CATEGORIES.length) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Сверка счетчиков с хранилищем: полный обход, затем запись точных значений.
+     * Файлы, записанные во время обхода, могут быть учтены дважды или не учтены - это
+     * исправит следующая сверка
+     */
+    @Scheduled(cron = "${protocol.storage.stats.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            logger.info("Сверка статистики хранилища уже выполняется");
+            return;
+        }
+        try {
+            long startedAt = System.currentTimeMillis();
+            long[] files = new long[CATEGORIES.length];
+            long[] bytes = new long[CATEGORIES.length];
+            // Приращения, накопленные до обхода, обход учтет сам
+            resetPending();
+            protocolStorage.getObject().forEach(object -> {
+                int index = ProtocolStorageStat.Category.of(object.getKey()).ordinal();
+                files[index]++;
+                bytes[index] += object.getSize();
+            });
+
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<ProtocolStorageStat.Category, ProtocolStorageStat> existing =
+                        new EnumMap<>(ProtocolStorageStat.Category.class);
+                protocolStorageStatRepository.findAll().forEach(stat -> existing.put(stat.getCategory(), stat));
+                for (ProtocolStorageStat.Category category : CATEGORIES) {
+                    ProtocolStorageStat stat = existing.getOrDefault(category, new ProtocolStorageStat(category));
+                    int index = category.ordinal();
+                    if (stat.getFileCount() != files[index] || stat.getTotalBytes() != bytes[index]) {
+                        logger.info("Статистика хранилища {} исправлена: файлов {} -> {}, байт {} -> {}",
+                                category, stat.getFileCount(), files[index], stat.getTotalBytes(), bytes[index]);
+                    }
+                    stat.setFileCount(files[index]);
+                    stat.setTotalBytes(bytes[index]);
+                    stat.setReconciledAt(now);
+                    protocolStorageStatRepository.save(stat);
+                }
+            });
+            logger.info("Сверка статистики хранилища протоколов за {} мс", System.currentTimeMillis() - startedAt);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Ошибка сверки статистики хранилища протоколов", e);
+        } finally {
+            reconciling.set(false);
+        }
+    }
+
+    private void resetPending() {
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            pendingFiles.set(i, 0);
+            pendingBytes.set(i, 0);
+        }
+    }
+
+    public static class Counts {
+        private final long files;
+        private final long bytes;
+
+        public Counts(long files, long bytes) {
+            this.files = files;
+            this.bytes = bytes;
+        }
+
+        public long getFiles() { return files; }
+        public long getBytes() { return bytes; }
+    }
+
+    public static class Statistics {
+        private final Map<ProtocolStorageStat.Category, Counts> categories;
+        private final LocalDateTime reconciledAt;
+
+        public Statistics(Map<ProtocolStorageStat.Category, Counts> categories, LocalDateTime reconciledAt) {
+            this.categories = categories;
+            this.reconciledAt = reconciledAt;
+        }
+
+        public Map<ProtocolStorageStat.Category, Counts> getCategories() { return categories; }
+        public LocalDateTime getReconciledAt() { return reconciledAt; }
+
+        public Counts get(ProtocolStorageStat.Category category) {
+            return categories.getOrDefault(category, new Counts(0, 0));
+        }
+
+        public long getTotalFiles() {
+            return categories.values().stream().mapToLong(Counts::getFiles).sum();
+        }
+
+        public long getTotalBytes() {
+            return categories.values().stream().mapToLong(Counts::getBytes).sum();
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.company.training.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище протоколов в S3-совместимом объектном хранилище (AWS S3, MinIO, Ceph RGW).
+ * Запросы подписываются AWS Signature V4, адресация path-style: endpoint/bucket/prefix/ab/cd/ключ.
+ * Содержимое сначала пишется потоком во временный файл с подсчетом SHA-256 и MD5, затем
+ * отправляется одним PUT с заголовками x-amz-content-sha256 и Content-MD5: хранилище само
+ * сверяет полученные байты и отклоняет объект при расхождении, частично записанных
+ * объектов не бывает.
+ */
+public class S3ProtocolStorage implements ProtocolStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3ProtocolStorage.class);
+
+    private static final String EMPTY_PAYLOAD_SHA256 =
+            "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final String SHA256_METADATA = "x-amz-meta-sha256";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter DATE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    private final URI endpoint;
+    private final String bucket;
+    private final String prefix;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final Path spoolDirectory;
+    private final HttpClient httpClient;
+
+    public S3ProtocolStorage(URI endpoint, String bucket, String prefix, String region,
+                             String accessKey, String secretKey, Path spoolDirectory) {
+        this.endpoint = URI.create(endpoint.toString().replaceAll("/+$", ""));
+        this.bucket = bucket;
+        this.prefix = normalizePrefix(prefix);
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.spoolDirectory = spoolDirectory;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            Files.createDirectories(spoolDirectory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось создать каталог " + spoolDirectory, e);
+        }
+        logger.info("S3 хранилище протоколов: {}/{}/{}", this.endpoint, bucket, this.prefix);
+    }
+
+    @Override
+    public StoredObject store(InputStream content, String extension) throws IOException {
+        String suffix = ProtocolStorage.normalizeExtension(extension);
+        Path spoolFile = Files.createTempFile(spoolDirectory, "s3-", ".tmp");
+        try {
+            Spooled spooled = spool(content, spoolFile);
+            String key = spooled.sha256 + suffix;
+            Optional<StoredObject> existing = stat(key);
+            if (existing.isPresent() && existing.get().getSize() == spooled.size) {
+                logger.debug("Содержимое {} уже есть в хранилище", key);
+                // Объект снова нужен: свежая дата защищает его от сборщика, пока новая запись не закоммичена
+                touch(key, spooled.sha256);
+                return new StoredObject(key, spooled.size, System.currentTimeMillis(), spooled.sha256,
+                        spooled.size);
+            }
+            return upload(key, spoolFile, spooled, existing);
+        } finally {
+            Files.deleteIfExists(spoolFile);
+        }
+    }
+
+    @Override
+    public StoredObject put(String key, InputStream content) throws IOException {
+        ProtocolStorage.checkKey(key);
+        Path spoolFile = Files.createTempFile(spoolDirectory, "s3-", ".tmp");
+        try {
+            Spooled spooled = spool(content, spoolFile);
+            if (ProtocolStorage.isContentKey(key) && !key.startsWith(spooled.sha256)) {
+                throw new IOException("Контрольная сумма не совпадает с ключом " + key);
+            }
+            return upload(key, spoolFile, spooled, stat(key));
+        } finally {
+            Files.deleteIfExists(spoolFile);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return open(key, 0);
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        return get(key, offset, -1);
+    }
+
+    /**
+     * Диапазон запрашивается у S3 с обеими границами: хранилище отдает ровно
+     * нужные байты, и соединение после чтения тела остается пригодным для повторного использования
+     */
+    @Override
+    public InputStream open(String key, long start, long end) throws IOException {
+        return new BoundedInputStream(get(key, start, end), end - start + 1);
+    }
+
+    /**
+     * GET объекта с байта start до end включительно; end < 0 - до конца объекта
+     */
+    private InputStream get(String key, long start, long end) throws IOException {
+        Map<String, String> headers = end >= 0
+                ? Map.of("range", "bytes=" + start + "-" + end)
+                : start > 0 ? Map.of("range", "bytes=" + start + "-") : Map.of();
+        HttpRequest.Builder request = signedRequest("GET", objectPath(key), Map.of(), EMPTY_PAYLOAD_SHA256, headers);
+        HttpResponse<InputStream> response = send(request.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 200 || response.statusCode() == 206) {
+            InputStream body = response.body();
+            if (start > 0 && response.statusCode() == 200) {
+                // Хранилище проигнорировало Range
+                body.skipNBytes(start);
+            }
+            return body;
+        }
+        String error = new String(response.body().readAllBytes(), StandardCharsets.UTF_8);
+        if (response.statusCode() == 404) {
+            throw new NoSuchFileException(key);
+        }
+        throw new IOException("S3 GET " + key + ": " + response.statusCode() + " " + error);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        HttpRequest.Builder request = signedRequest("HEAD", objectPath(key), Map.of(), EMPTY_PAYLOAD_SHA256, Map.of());
+        HttpResponse<Void> response = send(request.method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("S3 HEAD " + key + ": " + response.statusCode());
+        }
+        HttpHeaders headers = response.headers();
+        long size = headers.firstValueAsLong("content-length").orElse(0);
+        long lastModified = headers.firstValue("last-modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+        return Optional.of(new StoredObject(key, size, lastModified, headers.firstValue(SHA256_METADATA).orElse(null)));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        // DELETE в S3 отвечает 204 и для отсутствующего объекта
+        if (stat(key).isEmpty()) {
+            return false;
+        }
+        HttpRequest.Builder request = signedRequest("DELETE", objectPath(key), Map.of(), EMPTY_PAYLOAD_SHA256, Map.of());
+        HttpResponse<String> response = send(request.DELETE().build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 204 && response.statusCode() != 200) {
+            throw new IOException("S3 DELETE " + key + ": " + response.statusCode() + " " + response.body());
+        }
+        return true;
+    }
+
+    /**
+     * ListObjectsV2 постранично (до 1000 объектов за запрос)
+     */
+    @Override
+    public void forEach(Consumer<StoredObject> action) throws IOException {
+        String continuationToken = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("prefix", prefix);
+            if (continuationToken != null) {
+                query.put("continuation-token", continuationToken);
+            }
+            HttpRequest.Builder request = signedRequest("GET", "/" + bucket, query, EMPTY_PAYLOAD_SHA256, Map.of());
+            HttpResponse<InputStream> response = send(request.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+            Document listing;
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("S3 LIST: " + response.statusCode() + " "
+                            + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                }
+                listing = parseXml(body);
+            }
+
+            NodeList contents = listing.getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element object = (Element) contents.item(i);
+                String objectKey = childText(object, "Key");
+                String key = objectKey.substring(objectKey.lastIndexOf('/') + 1);
+                action.accept(new StoredObject(key,
+                        Long.parseLong(childText(object, "Size")),
+                        Instant.parse(childText(object, "LastModified")).toEpochMilli(),
+                        null));
+            }
+
+            boolean truncated = "true".equals(childText(listing.getDocumentElement(), "IsTruncated"));
+            continuationToken = truncated ? childText(listing.getDocumentElement(), "NextContinuationToken") : null;
+        } while (continuationToken != null);
+    }
+
+    private StoredObject upload(String key, Path spoolFile, Spooled spooled,
+                                Optional<StoredObject> replaced) throws IOException {
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("content-md5", spooled.md5Base64);
+        headers.put(SHA256_METADATA, spooled.sha256);
+        HttpRequest.Builder request = signedRequest("PUT", objectPath(key), Map.of(), spooled.sha256, headers);
+        HttpResponse<String> response = send(request.PUT(HttpRequest.BodyPublishers.ofFile(spoolFile)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("S3 PUT " + key + ": " + response.statusCode() + " " + response.body());
+        }
+        logger.debug("Объект {} записан в S3 ({} байт)", key, spooled.size);
+        return new StoredObject(key, spooled.size, System.currentTimeMillis(), spooled.sha256,
+                replaced.map(StoredObject::getSize).orElse(StoredObject.ABSENT));
+    }
+
+    /**
+     * Обновление Last-Modified без повторной передачи содержимого: копирование объекта
+     * в самого себя (S3 разрешает его только с заменой метаданных)
+     */
+    private void touch(String key, String sha256) throws IOException {
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("x-amz-copy-source", objectPath(key));
+        headers.put("x-amz-metadata-directive", "REPLACE");
+        headers.put(SHA256_METADATA, sha256);
+        HttpRequest.Builder request = signedRequest("PUT", objectPath(key), Map.of(), EMPTY_PAYLOAD_SHA256, headers);
+        HttpResponse<String> response = send(request.PUT(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        // Ошибка копирования может прийти и с кодом 200 - в теле ответа
+        if (response.statusCode() != 200 || response.body().contains("<Error>")) {
+            throw new IOException("S3 COPY " + key + ": " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private Spooled spool(InputStream content, Path spoolFile) throws IOException {
+        MessageDigest sha256 = ProtocolStorage.newSha256();
+        MessageDigest md5 = newMd5();
+        long size;
+        try (InputStream in = new DigestInputStream(new DigestInputStream(content, sha256), md5);
+             OutputStream out = Files.newOutputStream(spoolFile)) {
+            size = in.transferTo(out);
+        }
+        return new Spooled(HexFormat.of().formatHex(sha256.digest()),
+                Base64.getEncoder().encodeToString(md5.digest()), size);
+    }
+
+    private String objectPath(String key) {
+        ProtocolStorage.checkKey(key);
+        return "/" + bucket + "/" + prefix + ProtocolStorage.shardPrefix(key) + "/" + encode(key);
+    }
+
+    /**
+     * Запрос с подписью AWS Signature V4. Имя объекта в пути и параметры запроса
+     * кодируются по RFC 3986 (так же их кодирует S3 при проверке подписи)
+     */
+    private HttpRequest.Builder signedRequest(String method, String path, Map<String, String> query,
+                                              String payloadSha256, Map<String, String> extraHeaders) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = now.format(AMZ_DATE);
+        String dateStamp = now.format(DATE_STAMP);
+
+        String canonicalQuery = new TreeMap<>(query).entrySet().stream()
+                .map(entry -> encode(entry.getKey()) + "=" + encode(entry.getValue()))
+                .collect(Collectors.joining("&"));
+
+        Map<String, String> headers = new TreeMap<>(extraHeaders);
+        headers.put("host", endpoint.getPort() == -1 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort());
+        headers.put("x-amz-content-sha256", payloadSha256);
+        headers.put("x-amz-date", amzDate);
+
+        String canonicalHeaders = headers.entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue().trim() + "\n")
+                .collect(Collectors.joining());
+        String signedHeaders = String.join(";", headers.keySet());
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadSha256;
+
+        String scope = dateStamp + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(ProtocolStorage.newSha256()
+                .digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(
+                        URI.create(endpoint + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery)))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        // Host выставляет сам HttpClient
+        headers.forEach((name, value) -> {
+            if (!"host".equals(name)) {
+                builder.header(name, value);
+            }
+        });
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Запрос к S3 прерван: " + request.uri());
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 недоступен", e);
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 недоступен", e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    private static String normalizePrefix(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return "";
+        }
+        String trimmed = prefix.replaceAll("^/+|/+$", "");
+        if (!trimmed.matches("[A-Za-z0-9._/-]+")) {
+            throw new IllegalArgumentException("Недопустимый префикс S3: " + prefix);
+        }
+        return trimmed + "/";
+    }
+
+    private static Document parseXml(InputStream body) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(body);
+        } catch (Exception e) {
+            throw new IOException("Не удалось разобрать ответ S3: " + e.getMessage(), e);
+        }
+    }
+
+    private static String childText(Element parent, String name) {
+        NodeList children = parent.getElementsByTagName(name);
+        return children.getLength() == 0 ? null : children.item(0).getTextContent();
+    }
+
+    private static class Spooled {
+        private final String sha256;
+        private final String md5Base64;
+        private final long size;
+
+        Spooled(String sha256, String md5Base64, long size) {
+            this.sha256 = sha256;
+            this.md5Base64 = md5Base64;
+            this.size = size;
+        }
+    }
+}
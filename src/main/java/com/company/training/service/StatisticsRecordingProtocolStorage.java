@@ -0,0 +1,87 @@
+package com.company.training.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Обертка хранилища протоколов, которая сообщает о каждой записи и удалении
+ * в ProtocolStorageStatisticsService. Запись без изменений (то же содержимое по тому же
+ * ключу) статистику не меняет, перезапись учитывает только разницу в размере.
+ */
+public class StatisticsRecordingProtocolStorage implements ProtocolStorage {
+
+    private final ProtocolStorage delegate;
+    private final ProtocolStorageStatisticsService statistics;
+
+    public StatisticsRecordingProtocolStorage(ProtocolStorage delegate, ProtocolStorageStatisticsService statistics) {
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public StoredObject store(InputStream content, String extension) throws IOException {
+        return recorded(delegate.store(content, extension));
+    }
+
+    @Override
+    public StoredObject put(String key, InputStream content) throws IOException {
+        return recorded(delegate.put(key, content));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return delegate.open(key);
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        return delegate.open(key, offset);
+    }
+
+    @Override
+    public InputStream open(String key, long start, long end) throws IOException {
+        return delegate.open(key, start, end);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        return delegate.stat(key);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        Optional<StoredObject> existing = delegate.stat(key);
+        boolean deleted = delegate.delete(key);
+        if (deleted && existing.isPresent()) {
+            statistics.record(key, -1, -existing.get().getSize());
+        }
+        return deleted;
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return delegate.localPath(key);
+    }
+
+    @Override
+    public void forEach(Consumer<StoredObject> action) throws IOException {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public boolean verify(String key) throws IOException {
+        return delegate.verify(key);
+    }
+
+    private StoredObject recorded(StoredObject stored) {
+        if (stored.getReplacedSize() == StoredObject.ABSENT) {
+            statistics.record(stored.getKey(), 1, stored.getSize());
+        } else {
+            statistics.record(stored.getKey(), 0, stored.getSize() - stored.getReplacedSize());
+        }
+        return stored;
+    }
+}
@@ -0,0 +1,367 @@
+package com.company.training.service;
+
+import com.sun.jna.Pointer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import net.sourceforge.tess4j.Word;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пул заранее инициализированных движков Tesseract.
+ * Класс Tesseract из tess4j загружает tessdata при каждом вызове doOCR/getWords,
+ * поэтому движки создаются напрямую через TessAPI1 и живут между страницами.
+ * Движок пересоздается после заданного числа страниц (нативная память Tesseract
+ * со временем растет) и после ошибки распознавания или проверки здоровья.
+ */
+@Component
+public class TesseractEnginePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(TesseractEnginePool.class);
+
+    private static final String LANGUAGE = "rus";
+    private static final int PAGE_SEG_MODE = 6;
+
+    private final String dataPath;
+    private final int poolSize;
+    private final int recycleAfterPages;
+
+    private final BlockingQueue<Engine> idleEngines = new LinkedBlockingQueue<>();
+    private final Object createLock = new Object();
+    private int createdEngines = 0;
+    private volatile boolean closed = false;
+
+    // Причина, по которой движки не создаются (нет libtesseract); OCR в этом случае недоступен
+    private volatile String unavailableReason;
+
+    // Метрики
+    private final AtomicInteger activeEngines = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong recognizedPages = new AtomicLong();
+    private final AtomicLong recycledEngines = new AtomicLong();
+    private final AtomicLong failedChecks = new AtomicLong();
+
+    public TesseractEnginePool(@Value("${tesseract.data.path:tessdata}") String dataPath,
+                               @Value("${ocr.engine.pool-size:0}") int poolSize,
+                               @Value("${ocr.engine.recycle-after-pages:200}") int recycleAfterPages) {
+        this.dataPath = dataPath;
+        this.poolSize = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.recycleAfterPages = Math.max(1, recycleAfterPages);
+    }
+
+    /**
+     * Прогрев: создаем все движки при старте, чтобы первый документ не ждал загрузки tessdata.
+     * Если tessdata или сама libtesseract недоступны, приложение все равно стартует:
+     * ошибка только пишется в лог, OCR будет недоступен до исправления установки
+     */
+    @PostConstruct
+    public void warmUp() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                Engine engine = createEngine();
+                if (engine == null) {
+                    break;
+                }
+                engine.checkHealth();
+                if (!engine.healthy) {
+                    destroyEngine(engine);
+                    break;
+                }
+                idleEngines.add(engine);
+            }
+            logger.info("Пул Tesseract прогрет: {} движков за {} мс",
+                    idleEngines.size(), System.currentTimeMillis() - startedAt);
+        } catch (Exception | LinkageError e) {
+            logger.error("Не удалось прогреть пул Tesseract, OCR недоступен: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Берет свободный движок, при необходимости ожидая его освобождения
+     */
+    public Engine acquire() throws InterruptedException {
+        long waitStartedAt = System.nanoTime();
+
+        Engine engine = idleEngines.poll();
+        while (engine == null) {
+            if (closed) {
+                throw new IllegalStateException("Пул Tesseract остановлен");
+            }
+            if (unavailableReason != null) {
+                throw new IllegalStateException("OCR недоступен: " + unavailableReason);
+            }
+            // Пока ждем, пересозданный движок мог освободить место в пуле - пробуем создать новый
+            engine = createEngine();
+            if (engine == null) {
+                engine = idleEngines.poll(100, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        long waited = System.nanoTime() - waitStartedAt;
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        activeEngines.incrementAndGet();
+        return engine;
+    }
+
+    /**
+     * Возвращает движок в пул. Отработавший свой ресурс или сломанный движок уничтожается,
+     * вместо него при следующем запросе создается новый
+     */
+    public void release(Engine engine) {
+        activeEngines.decrementAndGet();
+
+        if (closed || !engine.healthy || engine.pagesProcessed >= recycleAfterPages) {
+            if (!closed) {
+                logger.info("Движок Tesseract пересоздается (страниц: {}, исправен: {})",
+                        engine.pagesProcessed, engine.healthy);
+                recycledEngines.incrementAndGet();
+            }
+            destroyEngine(engine);
+            return;
+        }
+        idleEngines.add(engine);
+    }
+
+    /**
+     * Периодическая проверка простаивающих движков на пустом изображении
+     */
+    @Scheduled(fixedDelayString = "${ocr.engine.health-check-interval-ms:300000}")
+    public void checkIdleEngines() {
+        List<Engine> checked = new ArrayList<>();
+        Engine engine;
+        while ((engine = idleEngines.poll()) != null) {
+            checked.add(engine);
+        }
+
+        for (Engine idle : checked) {
+            idle.checkHealth();
+            if (idle.healthy) {
+                idleEngines.add(idle);
+            } else {
+                failedChecks.incrementAndGet();
+                recycledEngines.incrementAndGet();
+                logger.warn("Движок Tesseract не прошел проверку и будет пересоздан");
+                destroyEngine(idle);
+            }
+        }
+    }
+
+    public PoolStats getStats() {
+        long acquired = acquireCount.get();
+        PoolStats stats = new PoolStats();
+        stats.setPoolSize(poolSize);
+        synchronized (createLock) {
+            stats.setCreatedEngines(createdEngines);
+        }
+        stats.setIdleEngines(idleEngines.size());
+        stats.setActiveEngines(activeEngines.get());
+        stats.setAcquireCount(acquired);
+        stats.setAverageWaitMs(acquired > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / acquired) : 0);
+        stats.setMaxWaitMs(TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        stats.setRecognizedPages(recognizedPages.get());
+        stats.setRecycledEngines(recycledEngines.get());
+        stats.setFailedHealthChecks(failedChecks.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        Engine engine;
+        while ((engine = idleEngines.poll()) != null) {
+            destroyEngine(engine);
+        }
+    }
+
+    /**
+     * Новый движок, если пул еще не заполнен, иначе null
+     */
+    private Engine createEngine() {
+        synchronized (createLock) {
+            if (closed || createdEngines >= poolSize) {
+                return null;
+            }
+            createdEngines++;
+        }
+
+        try {
+            return new Engine();
+        } catch (Throwable e) {
+            synchronized (createLock) {
+                createdEngines--;
+            }
+            if (e instanceof LinkageError) {
+                // Нативная библиотека не загрузилась: повторные попытки бессмысленны
+                unavailableReason = e.toString();
+                logger.error("Не удалось загрузить Tesseract, OCR недоступен: {}", e.toString());
+                throw new IllegalStateException("OCR недоступен: " + e, e);
+            }
+            throw e;
+        }
+    }
+
+    private void destroyEngine(Engine engine) {
+        engine.close();
+        synchronized (createLock) {
+            createdEngines--;
+        }
+    }
+
+    /**
+     * Инициализированный экземпляр Tesseract. Используется одним потоком между acquire и release
+     */
+    public class Engine {
+        private final ITessAPI.TessBaseAPI handle;
+        private int pagesProcessed = 0;
+        private boolean healthy = true;
+
+        private Engine() {
+            handle = TessAPI1.TessBaseAPICreate();
+            if (TessAPI1.TessBaseAPIInit3(handle, dataPath, LANGUAGE) != 0) {
+                TessAPI1.TessBaseAPIDelete(handle);
+                throw new RuntimeException("Не удалось инициализировать Tesseract (tessdata: " + dataPath + ")");
+            }
+            TessAPI1.TessBaseAPISetPageSegMode(handle, PAGE_SEG_MODE);
+        }
+
+        /**
+         * Распознает изображение и возвращает строки текста с уверенностью
+         */
+        public List<Word> recognizeLines(BufferedImage image, int dpi) {
+            pagesProcessed++;
+            try {
+                List<Word> lines = recognize(image, dpi);
+                recognizedPages.incrementAndGet();
+                return lines;
+            } catch (RuntimeException e) {
+                healthy = false;
+                throw e;
+            }
+        }
+
+        private List<Word> recognize(BufferedImage image, int dpi) {
+            int bitsPerPixel = image.getColorModel().getPixelSize();
+            int bytesPerLine = (int) Math.ceil(image.getWidth() * bitsPerPixel / 8.0);
+            ByteBuffer imageData = ImageIOHelper.convertImageData(image);
+
+            List<Word> lines = new ArrayList<>();
+            try {
+                TessAPI1.TessBaseAPISetImage(handle, imageData, image.getWidth(), image.getHeight(),
+                        bitsPerPixel / 8, bytesPerLine);
+                TessAPI1.TessBaseAPISetSourceResolution(handle, dpi);
+                if (TessAPI1.TessBaseAPIRecognize(handle, null) != 0) {
+                    throw new RuntimeException("Tesseract вернул ошибку распознавания");
+                }
+
+                int level = ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE;
+                ITessAPI.TessResultIterator iterator = TessAPI1.TessBaseAPIGetIterator(handle);
+                if (iterator == null) {
+                    return lines;
+                }
+                try {
+                    ITessAPI.TessPageIterator pageIterator = TessAPI1.TessResultIteratorGetPageIterator(iterator);
+                    TessAPI1.TessPageIteratorBegin(pageIterator);
+                    do {
+                        Pointer textPointer = TessAPI1.TessResultIteratorGetUTF8Text(iterator, level);
+                        if (textPointer == null) {
+                            continue;
+                        }
+                        String text = textPointer.getString(0, "UTF-8");
+                        TessAPI1.TessDeleteText(textPointer);
+                        float confidence = TessAPI1.TessResultIteratorConfidence(iterator, level);
+                        lines.add(new Word(text, confidence, new Rectangle()));
+                    } while (TessAPI1.TessPageIteratorNext(pageIterator, level) == ITessAPI.TRUE);
+                } finally {
+                    TessAPI1.TessResultIteratorDelete(iterator);
+                }
+                return lines;
+            } finally {
+                // Освобождаем изображение и результаты внутри движка, сам движок остается загруженным
+                TessAPI1.TessBaseAPIClear(handle);
+            }
+        }
+
+        private void checkHealth() {
+            try {
+                BufferedImage blank = new BufferedImage(64, 64, BufferedImage.TYPE_BYTE_GRAY);
+                recognize(blank, 300);
+            } catch (Exception | LinkageError e) {
+                logger.warn("Проверка движка Tesseract завершилась ошибкой: {}", e.getMessage());
+                healthy = false;
+            }
+        }
+
+        private void close() {
+            TessAPI1.TessBaseAPIEnd(handle);
+            TessAPI1.TessBaseAPIDelete(handle);
+        }
+    }
+
+    /**
+     * Состояние пула для страницы мониторинга
+     */
+    public static class PoolStats {
+        private int poolSize;
+        private int createdEngines;
+        private int idleEngines;
+        private int activeEngines;
+        private long acquireCount;
+        private long averageWaitMs;
+        private long maxWaitMs;
+        private long recognizedPages;
+        private long recycledEngines;
+        private long failedHealthChecks;
+
+        public int getPoolSize() { return poolSize; }
+        public void setPoolSize(int poolSize) { this.poolSize = poolSize; }
+
+        public int getCreatedEngines() { return createdEngines; }
+        public void setCreatedEngines(int createdEngines) { this.createdEngines = createdEngines; }
+
+        public int getIdleEngines() { return idleEngines; }
+        public void setIdleEngines(int idleEngines) { this.idleEngines = idleEngines; }
+
+        public int getActiveEngines() { return activeEngines; }
+        public void setActiveEngines(int activeEngines) { this.activeEngines = activeEngines; }
+
+        public long getAcquireCount() { return acquireCount; }
+        public void setAcquireCount(long acquireCount) { this.acquireCount = acquireCount; }
+
+        public long getAverageWaitMs() { return averageWaitMs; }
+        public void setAverageWaitMs(long averageWaitMs) { this.averageWaitMs = averageWaitMs; }
+
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+        public long getRecognizedPages() { return recognizedPages; }
+        public void setRecognizedPages(long recognizedPages) { this.recognizedPages = recognizedPages; }
+
+        public long getRecycledEngines() { return recycledEngines; }
+        public void setRecycledEngines(long recycledEngines) { this.recycledEngines = recycledEngines; }
+
+        public long getFailedHealthChecks() { return failedHealthChecks; }
+        public void setFailedHealthChecks(long failedHealthChecks) { this.failedHealthChecks = failedHealthChecks; }
+    }
+}
@@ -0,0 +1,82 @@
+package com.company.training.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Проверка текстового слоя страницы PDF.
+ * Протоколы из учебного центра часто приходят как "цифровые" PDF - для них текст
+ * извлекается напрямую, без рендеринга и Tesseract. Слой считается пригодным,
+ * если в нем достаточно символов и он похож на русский текст, а не на мусор
+ * от неправильной кодировки шрифтов.
+ */
+@Component
+public class TextLayerDetector {
+
+    // Доля "нормальных" символов (буквы, цифры, пунктуация) среди непробельных
+    private static final double MIN_READABLE_RATIO = 0.85;
+
+    // Доля кириллицы среди букв
+    private static final double MIN_CYRILLIC_RATIO = 0.5;
+
+    private final int minChars;
+
+    public TextLayerDetector(@Value("${ocr.text-layer.min-chars:200}") int minChars) {
+        this.minChars = minChars;
+    }
+
+    /**
+     * Текст страницы (номер с 1) из текстового слоя или null, если слоя нет
+     * или его качество недостаточно и страницу нужно распознавать через OCR
+     */
+    public String extractText(PDDocument document, int pageNumber) throws IOException {
+        // PDFTextStripper хранит состояние, поэтому создается на каждый вызов
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(pageNumber);
+        stripper.setEndPage(pageNumber);
+        stripper.setSortByPosition(true);
+        stripper.setLineSeparator("\n");
+
+        String text = stripper.getText(document);
+        return isUsable(text) ? text : null;
+    }
+
+    boolean isUsable(String text) {
+        if (text == null) {
+            return false;
+        }
+
+        int nonWhitespace = 0;
+        int readable = 0;
+        int letters = 0;
+        int cyrillic = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            nonWhitespace++;
+
+            if (Character.isLetter(c)) {
+                letters++;
+                readable++;
+                if (Character.UnicodeBlock.of(c) == Character.UnicodeBlock.CYRILLIC) {
+                    cyrillic++;
+                }
+            } else if (Character.isDigit(c) || ".,:;-–—()№\"«»/%'".indexOf(c) >= 0) {
+                readable++;
+            }
+        }
+
+        if (nonWhitespace < minChars || letters == 0) {
+            return false;
+        }
+        return (double) readable / nonWhitespace >= MIN_READABLE_RATIO
+                && (double) cyrillic / letters >= MIN_CYRILLIC_RATIO;
+    }
+}
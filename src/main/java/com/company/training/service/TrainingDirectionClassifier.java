@@ -0,0 +1,301 @@
+package com.company.training.service;
+
+import com.company.training.entity.TrainingDirection;
+import com.company.training.repository.TrainingDirectionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Определение направления обучения по тексту страницы протокола.
+ * Из таблицы направлений один раз собираются все строки, которые нужно искать
+ * (названия, описания, ключевые слова описаний, слова-признаки правил), с весами
+ * для каждого направления. Страница просматривается одним проходом автомата
+ * Ахо-Корасик, после чего баллы всех направлений складываются по найденным строкам.
+ * Классификатор пересобирается при изменении направлений в TrainingService.
+ */
+@Component
+public class TrainingDirectionClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingDirectionClassifier.class);
+
+    private static final int NAME_WEIGHT = 10;
+    private static final int DESCRIPTION_WEIGHT = 100;
+    private static final int KEYWORD_WEIGHT = 5;
+
+    /**
+     * Правила по типам программ: если на странице есть признак, направления
+     * с маркером в названии (или описании) получают дополнительные баллы.
+     * Признаки внутри группы - "или", группы между собой - "и"
+     */
+    private static final List<KeywordRule> RULES = List.of(
+            new KeywordRule(new String[][]{{"электроустановк"}}, "электро", "электро", 20),
+            new KeywordRule(new String[][]{{"сосуд"}, {"давлен"}}, "сосуд", null, 20),
+            new KeywordRule(new String[][]{{"огнев"}}, "огнев", null, 20),
+            new KeywordRule(new String[][]{{"газоопасн"}}, "газоопасн", null, 20),
+            new KeywordRule(new String[][]{{"первая помощь"}}, "перв", null, 30),
+            new KeywordRule(new String[][]{{"средств индивидуальной защиты", "сиз"}}, "сиз", null, 30),
+            new KeywordRule(new String[][]{{"общие вопросы охраны труда", "системы управления охраной труда"}},
+                    "общие", null, 30),
+            new KeywordRule(new String[][]{{"вредных и опасных производственных факторов"}}, "вредн", null, 30)
+    );
+
+    @Autowired
+    private TrainingDirectionRepository trainingDirectionRepository;
+
+    private volatile CompiledModel model;
+
+    // Номер версии направлений: растет при каждом invalidate. Модель, собранная
+    // по данным, прочитанным до изменения, не сохраняется
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Направление с наибольшим баллом или пусто, если ни одно не набрало баллов
+     */
+    public Optional<ScoredDirection> classify(ProtocolPageLexer.PageTokens pageTokens) {
+        List<ScoredDirection> scores = score(pageTokens);
+        return scores.isEmpty() ? Optional.empty() : Optional.of(scores.get(0));
+    }
+
+    /**
+     * Баллы всех направлений с ненулевым результатом, лучшие первыми
+     */
+    public List<ScoredDirection> score(ProtocolPageLexer.PageTokens pageTokens) {
+        CompiledModel current = currentModel();
+        // Строки поиска берутся из таблицы направлений и в словарь лексера не входят,
+        // поэтому автомат проходит по тексту сам, но нижний регистр уже готов
+        String lowerText = pageTokens.getLowerText();
+
+        boolean[] found = new boolean[current.patternCount];
+        for (AhoCorasickMatcher.Hit<Integer> hit : current.matcher.findAll(lowerText)) {
+            found[hit.getValue()] = true;
+        }
+
+        boolean[] ruleFired = new boolean[RULES.size()];
+        for (int i = 0; i < RULES.size(); i++) {
+            ruleFired[i] = current.ruleTriggers.get(i).isSatisfied(found);
+        }
+
+        List<ScoredDirection> scores = new ArrayList<>();
+        for (DirectionModel direction : current.directions) {
+            int score = direction.score(found, ruleFired);
+            if (score > 0) {
+                scores.add(new ScoredDirection(direction.id, direction.name, score));
+            }
+        }
+        // Сортировка устойчивая: при равных баллах остается порядок по названию
+        scores.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
+        return scores;
+    }
+
+    /**
+     * Сбросить модель после изменения направлений (применяется после коммита)
+     */
+    public void invalidate() {
+        TransactionHooks.afterCommit(() -> {
+            generation.incrementAndGet();
+            model = null;
+        });
+    }
+
+    private CompiledModel currentModel() {
+        CompiledModel current = model;
+        if (current == null) {
+            synchronized (this) {
+                current = model;
+                if (current == null) {
+                    long compiledGeneration = generation.get();
+                    current = compile(trainingDirectionRepository.findAllByOrderByNameAsc());
+                    // Если направления изменились во время сборки, модель годится только для этого вызова
+                    if (generation.get() == compiledGeneration) {
+                        model = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private CompiledModel compile(List<TrainingDirection> directions) {
+        long startedAt = System.currentTimeMillis();
+        Map<String, Integer> patternIds = new LinkedHashMap<>();
+
+        List<RuleTrigger> ruleTriggers = new ArrayList<>();
+        for (KeywordRule rule : RULES) {
+            int[][] groups = new int[rule.triggers.length][];
+            for (int g = 0; g < rule.triggers.length; g++) {
+                groups[g] = new int[rule.triggers[g].length];
+                for (int t = 0; t < rule.triggers[g].length; t++) {
+                    groups[g][t] = patternId(patternIds, rule.triggers[g][t]);
+                }
+            }
+            ruleTriggers.add(new RuleTrigger(groups));
+        }
+
+        List<DirectionModel> models = new ArrayList<>();
+        for (TrainingDirection direction : directions) {
+            String lowerName = direction.getName() != null ? direction.getName().toLowerCase() : null;
+            String lowerDescription = direction.getDescription() != null
+                    ? direction.getDescription().toLowerCase() : null;
+
+            DirectionModel directionModel = new DirectionModel(direction.getId(), direction.getName());
+            if (lowerName != null && !lowerName.isEmpty()) {
+                directionModel.namePattern = patternId(patternIds, lowerName);
+            }
+            if (lowerDescription != null && !lowerDescription.isEmpty()) {
+                directionModel.descriptionPattern = patternId(patternIds, lowerDescription);
+                // Повторяющееся в описании слово весит столько раз, сколько встречается
+                for (String keyword : lowerDescription.split("[,\\.;\\s]+")) {
+                    keyword = keyword.trim();
+                    if (keyword.length() > 3) {
+                        directionModel.keywordWeights.merge(patternId(patternIds, keyword), KEYWORD_WEIGHT, Integer::sum);
+                    }
+                }
+            }
+
+            directionModel.ruleBonuses = new int[RULES.size()];
+            for (int i = 0; i < RULES.size(); i++) {
+                KeywordRule rule = RULES.get(i);
+                if (lowerName != null && lowerName.contains(rule.nameMarker)) {
+                    directionModel.ruleBonuses[i] += rule.weight;
+                }
+                if (rule.descriptionMarker != null && lowerDescription != null
+                        && lowerDescription.contains(rule.descriptionMarker)) {
+                    directionModel.ruleBonuses[i] += rule.weight;
+                }
+            }
+            models.add(directionModel);
+        }
+
+        AhoCorasickMatcher.Builder<Integer> builder = AhoCorasickMatcher.builder();
+        patternIds.forEach(builder::add);
+        CompiledModel compiled = new CompiledModel(builder.build(), patternIds.size(), ruleTriggers, models);
+
+        logger.info("Классификатор направлений построен: {} направлений, {} строк поиска за {} мс",
+                models.size(), patternIds.size(), System.currentTimeMillis() - startedAt);
+        return compiled;
+    }
+
+    private static int patternId(Map<String, Integer> patternIds, String pattern) {
+        return patternIds.computeIfAbsent(pattern, key -> patternIds.size());
+    }
+
+    private static class CompiledModel {
+        private final AhoCorasickMatcher<Integer> matcher;
+        private final int patternCount;
+        private final List<RuleTrigger> ruleTriggers;
+        private final List<DirectionModel> directions;
+
+        private CompiledModel(AhoCorasickMatcher<Integer> matcher, int patternCount,
+                              List<RuleTrigger> ruleTriggers, List<DirectionModel> directions) {
+            this.matcher = matcher;
+            this.patternCount = patternCount;
+            this.ruleTriggers = ruleTriggers;
+            this.directions = directions;
+        }
+    }
+
+    private static class DirectionModel {
+        private final Long id;
+        private final String name;
+        private int namePattern = -1;
+        private int descriptionPattern = -1;
+        private final Map<Integer, Integer> keywordWeights = new HashMap<>();
+        private int[] ruleBonuses;
+
+        private DirectionModel(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        private int score(boolean[] found, boolean[] ruleFired) {
+            int score = 0;
+            if (namePattern >= 0 && found[namePattern]) {
+                score += NAME_WEIGHT;
+            }
+            if (descriptionPattern >= 0) {
+                if (found[descriptionPattern]) {
+                    score += DESCRIPTION_WEIGHT; // Полное совпадение!
+                } else {
+                    for (Map.Entry<Integer, Integer> keyword : keywordWeights.entrySet()) {
+                        if (found[keyword.getKey()]) {
+                            score += keyword.getValue();
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < ruleBonuses.length; i++) {
+                if (ruleFired[i]) {
+                    score += ruleBonuses[i];
+                }
+            }
+            return score;
+        }
+    }
+
+    private static class KeywordRule {
+        private final String[][] triggers;
+        private final String nameMarker;
+        private final String descriptionMarker;
+        private final int weight;
+
+        private KeywordRule(String[][] triggers, String nameMarker, String descriptionMarker, int weight) {
+            this.triggers = triggers;
+            this.nameMarker = nameMarker;
+            this.descriptionMarker = descriptionMarker;
+            this.weight = weight;
+        }
+    }
+
+    private static class RuleTrigger {
+        private final int[][] groups;
+
+        private RuleTrigger(int[][] groups) {
+            this.groups = groups;
+        }
+
+        private boolean isSatisfied(boolean[] found) {
+            for (int[] group : groups) {
+                boolean any = false;
+                for (int pattern : group) {
+                    if (found[pattern]) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Направление с баллом совпадения
+     */
+    public static class ScoredDirection {
+        private final Long directionId;
+        private final String name;
+        private final int score;
+
+        public ScoredDirection(Long directionId, String name, int score) {
+            this.directionId = directionId;
+            this.name = name;
+            this.score = score;
+        }
+
+        public Long getDirectionId() { return directionId; }
+        public String getName() { return name; }
+        public int getScore() { return score; }
+    }
+}
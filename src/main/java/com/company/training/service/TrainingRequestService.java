@@ -4,6 +4,9 @@ import com.company.training.entity.*;
 import com.company.training.repository.UserRepository;
 import jakarta.mail.internet.MimeMessage;
 import org.apache.poi.xwpf.usermodel.*;
+import org.apache.xmlbeans.impl.xb.xmlschema.SpaceAttribute;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +18,9 @@ import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -26,6 +31,13 @@ public class TrainingRequestService {
 
     private static final Logger logger = LoggerFactory.getLogger(TrainingRequestService.class);
 
+    private static final String TEMPLATE_PATH = "template.docx";
+
+    // Число заполняемых колонок заявки: от № п/п до даты следующего экзамена
+    private static final int TEMPLATE_COLUMNS = 7;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
     @Autowired
     private TrainingService trainingService;
 
@@ -40,6 +52,8 @@ public class TrainingRequestService {
 
     private Clock clock = Clock.systemDefaultZone();
 
+    private volatile CompiledTemplate compiledTemplate;
+
     // Вложенный класс для склонения русских ФИО
     private static class RussianNameDecliner {
 
@@ -401,33 +415,10 @@ public class TrainingRequestService {
      * Получает все записи, у которых в этом месяце начинается 3-месячный период до экзамена
      */
     public List<TrainingRecord> getRecordsWithThreeMonthPeriodStartingThisMonth() {
-        LocalDate today = getCurrentDate();
-        LocalDate firstDayOfMonth = today.withDayOfMonth(1);
-        LocalDate lastDayOfMonth = today.withDayOfMonth(today.lengthOfMonth());
-
-        List<TrainingRecord> allRecords = getAllTrainingRecords();
-        List<TrainingRecord> result = new ArrayList<>();
-
-        for (TrainingRecord record : allRecords) {
-            if (record.getExamDate() != null &&
-                    record.getApplicable() != null &&
-                    record.getApplicable()) {
-
-                LocalDate nextExamDate = record.getNextExamDate();
-                if (nextExamDate != null) {
-                    // Вычисляем дату за 3 месяца до следующего экзамена
-                    LocalDate threeMonthsBefore = nextExamDate.minusMonths(3);
-
-                    // Проверяем, попадает ли эта дата в текущий месяц
-                    if (!threeMonthsBefore.isBefore(firstDayOfMonth) &&
-                            !threeMonthsBefore.isAfter(lastDayOfMonth)) {
-                        result.add(record);
-                    }
-                }
-            }
-        }
-
-        return result;
+        // Дата за 3 месяца до экзамена попадает в текущий месяц ровно тогда,
+        // когда сам экзамен приходится на месяц через три от текущего
+        LocalDate examMonth = getCurrentDate().plusMonths(3);
+        return trainingService.getRecordsExpiringInMonth(examMonth.getYear(), examMonth.getMonthValue());
     }
 
     /**
@@ -441,84 +432,155 @@ public class TrainingRequestService {
      * Генерирует документ Word с заявкой на основе шаблона template.docx
      */
     public byte[] generateTrainingRequestDocument(List<TrainingRecord> records) throws Exception {
-        logger.info("=== Начинаем заполнение документа ===");
-        logger.info("✅ Используемый шрифт: Tahoma 8pt");
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeTrainingRequestDocument(records, baos);
+        return baos.toByteArray();
+    }
 
-        // 1. Читаем файл шаблона
-        String templatePath = "template.docx";
+    /**
+     * Записывает документ с заявкой прямо в поток, без промежуточного массива байт.
+     * Шаблон разбирается один раз (getCompiledTemplate), на каждый запрос из него
+     * открывается новый документ, а строки копируются из готового образца
+     */
+    public void writeTrainingRequestDocument(List<TrainingRecord> records, OutputStream out) throws Exception {
+        long startedAt = System.currentTimeMillis();
+        CompiledTemplate template = getCompiledTemplate();
 
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(templatePath)) {
-            if (is == null) {
-                logger.error("Файл шаблона не найден: {}", templatePath);
-                logger.error("Положите ваш template.docx в папку src/main/resources/!");
-                throw new RuntimeException("Файл шаблона не найден: " + templatePath);
-            }
+        try (XWPFDocument doc = template.newDocument()) {
+            CTTbl table = doc.getTables().get(0).getCTTbl();
+
+            for (int i = 0; i < records.size(); i++) {
+                TrainingRecord record = records.get(i);
+                String fullName = record.getEmployee().getFullName();
+                // ФИО в дательном падеже генерируется на лету с использованием улучшенного алгоритма
+                String dativeName = convertToDativeCase(fullName);
 
-            XWPFDocument doc = new XWPFDocument(is);
+                CTRow row = table.addNewTr();
+                row.set(template.rowPrototype);
 
-            // 2. Ищем таблицу
-            List<XWPFTable> tables = doc.getTables();
-            logger.info("Найдено таблиц в документе: {}", tables.size());
+                setRowCellText(row, 0, String.valueOf(i + 1));                       // № п/п
+                setRowCellText(row, 1, fullName);                                    // ФИО сотрудника
+                setRowCellText(row, 2, dativeName);                                  // ФИО в дательном падеже
+                setRowCellText(row, 3, record.getEmployee().getPosition());          // Должность (убираем отдел)
+                setRowCellText(row, 4, record.getTrainingDirection().getName());     // Направление
+                setRowCellText(row, 5, record.getExamDate().format(DATE_FORMAT));
+                setRowCellText(row, 6, record.getNextExamDate().format(DATE_FORMAT));
 
-            if (tables.isEmpty()) {
-                logger.error("Таблиц не найдено!");
-                throw new RuntimeException("В шаблоне не найдены таблицы");
+                logger.debug("✓ Добавлена запись для: {} (дательный падеж: {})", fullName, dativeName);
             }
 
-            XWPFTable table = tables.get(0);
-            logger.info("Строк в таблице: {}", table.getNumberOfRows());
+            doc.write(out);
+        } catch (Exception e) {
+            logger.error("Ошибка при генерации документа: {}", e.getMessage(), e);
+            throw e;
+        }
 
-            // 3. Находим индекс строки с заголовком "п/п"
-            int headerRowIndex = findHeaderRow(table);
+        logger.info("Документ с заявкой сгенерирован: {} записей за {} мс",
+                records.size(), System.currentTimeMillis() - startedAt);
+    }
 
-            if (headerRowIndex == -1) {
-                logger.error("Не найдена строка с заголовком 'п/п'!");
-                throw new RuntimeException("Не найдена строка с заголовком 'п/п'");
+    /**
+     * Шаблон заявки, разобранный при первом обращении
+     */
+    private CompiledTemplate getCompiledTemplate() throws Exception {
+        CompiledTemplate template = compiledTemplate;
+        if (template == null) {
+            synchronized (this) {
+                template = compiledTemplate;
+                if (template == null) {
+                    template = compileTemplate();
+                    compiledTemplate = template;
+                }
             }
+        }
+        return template;
+    }
 
-            logger.info("Заголовок найден в строке: {}", headerRowIndex);
+    /**
+     * Разбор template.docx: поиск строки заголовка, удаление строк после нее
+     * и подготовка образца строки данных со шрифтом Tahoma 8pt
+     */
+    private CompiledTemplate compileTemplate() throws Exception {
+        logger.info("=== Подготовка шаблона заявки {} ===", TEMPLATE_PATH);
 
-            // 4. Удаляем все строки между заголовком и концом таблицы
-            while (table.getNumberOfRows() > headerRowIndex + 1) {
-                table.removeRow(headerRowIndex + 1);
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(TEMPLATE_PATH)) {
+            if (is == null) {
+                logger.error("Файл шаблона не найден: {}", TEMPLATE_PATH);
+                logger.error("Положите ваш template.docx в папку src/main/resources/!");
+                throw new RuntimeException("Файл шаблона не найден: " + TEMPLATE_PATH);
             }
 
-            // 5. Добавляем новые строки с данными
-            for (int i = 0; i < records.size(); i++) {
-                TrainingRecord record = records.get(i);
+            try (XWPFDocument doc = new XWPFDocument(is)) {
+                // Ищем таблицу
+                List<XWPFTable> tables = doc.getTables();
+                logger.info("Найдено таблиц в документе: {}", tables.size());
 
-                XWPFTableRow newRow = table.createRow();
+                if (tables.isEmpty()) {
+                    logger.error("Таблиц не найдено!");
+                    throw new RuntimeException("В шаблоне не найдены таблицы");
+                }
 
-                // Заполняем ячейки с шрифтом Tahoma 8pt
-                setCellTextWithTahoma(newRow, 0, String.valueOf(i + 1));                 // № п/п
-                setCellTextWithTahoma(newRow, 1, record.getEmployee().getFullName());   // ФИО сотрудника
-                // ФИО в дательном падеже генерируется на лету с использованием улучшенного алгоритма
-                setCellTextWithTahoma(newRow, 2, convertToDativeCase(record.getEmployee().getFullName()));
-                setCellTextWithTahoma(newRow, 3, record.getEmployee().getPosition());   // Должность (убираем отдел)
-                setCellTextWithTahoma(newRow, 4, record.getTrainingDirection().getName()); // Направление
-                setCellTextWithTahoma(newRow, 5, record.getExamDate().format(
-                        DateTimeFormatter.ofPattern("dd.MM.yyyy")));
-                setCellTextWithTahoma(newRow, 6, record.getNextExamDate().format(
-                        DateTimeFormatter.ofPattern("dd.MM.yyyy")));
+                XWPFTable table = tables.get(0);
+                logger.info("Строк в таблице: {}", table.getNumberOfRows());
+
+                // Находим индекс строки с заголовком "п/п"
+                int headerRowIndex = findHeaderRow(table);
+
+                if (headerRowIndex == -1) {
+                    logger.error("Не найдена строка с заголовком 'п/п'!");
+                    throw new RuntimeException("Не найдена строка с заголовком 'п/п'");
+                }
+
+                logger.info("Заголовок найден в строке: {}", headerRowIndex);
+
+                // Удаляем все строки между заголовком и концом таблицы
+                while (table.getNumberOfRows() > headerRowIndex + 1) {
+                    table.removeRow(headerRowIndex + 1);
+                }
+
+                // Образец строки данных: ячейки с пустым текстом Tahoma 8pt
+                XWPFTableRow sampleRow = table.createRow();
+                for (int i = 0; i < TEMPLATE_COLUMNS; i++) {
+                    setCellTextWithTahoma(sampleRow, i, "");
+                }
+                CTRow rowPrototype = (CTRow) sampleRow.getCtRow().copy();
+                for (int i = 0; i < TEMPLATE_COLUMNS; i++) {
+                    // Пробелы по краям ФИО и должностей сохраняются, как при XWPFRun.setText
+                    rowPrototype.getTcArray(i).getPArray(0).getRArray(0).getTArray(0)
+                            .setSpace(SpaceAttribute.Space.PRESERVE);
+                }
+                table.removeRow(table.getNumberOfRows() - 1);
 
-                logger.info("✓ Добавлена запись для: {}", record.getEmployee().getFullName());
-                logger.debug("  Дательный падеж: {}", convertToDativeCase(record.getEmployee().getFullName()));
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                doc.write(baos);
+                return new CompiledTemplate(baos.toByteArray(), rowPrototype);
             }
+        }
+    }
 
-            // 6. Сохраняем результат
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            doc.write(baos);
-            doc.close();
+    /**
+     * Текст ячейки строки, скопированной из образца: параграф и run в ней уже есть
+     */
+    private static void setRowCellText(CTRow row, int cellIndex, String text) {
+        row.getTcArray(cellIndex).getPArray(0).getRArray(0).getTArray(0).setStringValue(text != null ? text : "");
+    }
 
-            logger.info("=== Документ успешно сгенерирован ===");
-            logger.info("📊 Добавлено записей: {}", records.size());
-            logger.info("🎨 Шрифт для всех строк: Tahoma 8pt");
+    /**
+     * Подготовленный шаблон: документ без строк данных и образец строки.
+     * После создания не изменяется, поэтому используется всеми запросами одновременно
+     */
+    private static class CompiledTemplate {
+        private final byte[] documentBytes;
+        private final CTRow rowPrototype;
 
-            return baos.toByteArray();
+        CompiledTemplate(byte[] documentBytes, CTRow rowPrototype) {
+            this.documentBytes = documentBytes;
+            this.rowPrototype = rowPrototype;
+        }
 
-        } catch (Exception e) {
-            logger.error("Ошибка при генерации документа: {}", e.getMessage(), e);
-            throw e;
+        // Разбор небольшого шаблона из памяти - доли миллисекунды против чтения ресурса из jar
+        XWPFDocument newDocument() throws IOException {
+            return new XWPFDocument(new ByteArrayInputStream(documentBytes));
         }
     }
 
@@ -638,7 +700,7 @@ public class TrainingRequestService {
                     emp.getFullName(),
                     emp.getPosition(),
                     record.getTrainingDirection().getName(),
-                    record.getNextExamDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy"))));
+                    record.getNextExamDate().format(DATE_FORMAT)));
         }
 
         return sb.toString();
@@ -692,10 +754,6 @@ public class TrainingRequestService {
         }
     }
 
-    private List<TrainingRecord> getAllTrainingRecords() {
-        return trainingService.getAllTrainingRecords();
-    }
-
     private String getCurrentMonthName() {
         return getCurrentDate().format(DateTimeFormatter.ofPattern("MMMM yyyy", new Locale("ru")));
     }
@@ -1,6 +1,9 @@
 package com.company.training.service;
 
+import com.company.training.dto.KeysetPage;
+import com.company.training.dto.TrainingRecordView;
 import com.company.training.entity.Employee;
+import com.company.training.entity.ProtocolStorageStat;
 import com.company.training.entity.TrainingDirection;
 import com.company.training.entity.TrainingRecord;
 import com.company.training.repository.TrainingDirectionRepository;
@@ -8,26 +11,35 @@ import com.company.training.repository.TrainingRecordRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @Service
 @Transactional
 public class TrainingService {
 
     private static final Logger logger = LoggerFactory.getLogger(TrainingService.class);
-    private final Path fileStorageLocation;
+    private static final int RECORDS_PAGE_SIZE = 50;
 
     @Autowired
     private TrainingDirectionRepository trainingDirectionRepository;
@@ -38,16 +50,20 @@ public class TrainingService {
     @Autowired
     private EmployeeService employeeService;
 
-    public TrainingService() {
-        this.fileStorageLocation = Paths.get("uploads/protocols").toAbsolutePath().normalize();
-        try {
-            Files.createDirectories(this.fileStorageLocation);
-            logger.info("Директория для хранения протоколов создана: {}", this.fileStorageLocation);
-        } catch (Exception ex) {
-            logger.error("Не удалось создать директорию для хранения протоколов", ex);
-            throw new RuntimeException("Не удалось создать директорию для хранения протоколов", ex);
-        }
-    }
+    @Autowired
+    private TrainingDirectionClassifier trainingDirectionClassifier;
+
+    @Autowired
+    private ParsedProtocolCache parsedProtocolCache;
+
+    @Autowired
+    private ProtocolStorage protocolStorage;
+
+    @Autowired
+    private ProtocolStorageStatisticsService protocolStorageStatisticsService;
+
+    @Autowired
+    private ProtocolStorageGarbageCollector protocolStorageGarbageCollector;
 
     // ==================== НАПРАВЛЕНИЯ ОБУЧЕНИЯ ====================
 
@@ -65,7 +81,10 @@ public class TrainingService {
         if (trainingDirectionRepository.existsByName(direction.getName())) {
             throw new RuntimeException("Направление с таким названием уже существует");
         }
-        return trainingDirectionRepository.save(direction);
+        TrainingDirection saved = trainingDirectionRepository.save(direction);
+        trainingDirectionClassifier.invalidate();
+        parsedProtocolCache.invalidateAll();
+        return saved;
     }
 
     public TrainingDirection updateTrainingDirection(Long id, TrainingDirection direction) {
@@ -78,12 +97,22 @@ public class TrainingService {
             throw new RuntimeException("Направление с таким названием уже существует");
         }
 
+        boolean validityChanged = !existing.getValidityMonths().equals(direction.getValidityMonths());
+
         existing.setName(direction.getName());
         existing.setValidityMonths(direction.getValidityMonths());
         existing.setDescription(direction.getDescription());
         existing.setCost(direction.getCost());
 
-        return trainingDirectionRepository.save(existing);
+        TrainingDirection saved = trainingDirectionRepository.save(existing);
+        if (validityChanged) {
+            // Записи направления пересчитываются одним UPDATE, без загрузки в память
+            int updated = trainingRecordRepository.updateNextExamDateForDirection(id, saved.getValidityMonths());
+            logger.info("Срок действия направления {} изменен, пересчитано записей: {}", id, updated);
+        }
+        trainingDirectionClassifier.invalidate();
+        parsedProtocolCache.invalidateAll();
+        return saved;
     }
 
     public void deleteTrainingDirection(Long id) {
@@ -98,6 +127,8 @@ public class TrainingService {
         }
 
         trainingDirectionRepository.deleteById(id);
+        trainingDirectionClassifier.invalidate();
+        parsedProtocolCache.invalidateAll();
     }
 
     // ==================== ЗАПИСИ ОБ ОБУЧЕНИИ ====================
@@ -168,12 +199,12 @@ public class TrainingService {
 
         // Если загружен новый файл
         if (file != null && !file.isEmpty()) {
-            // Удаляем старый файл, если он существует
-            if (existing.getFilePath() != null) {
-                deleteFile(existing.getFilePath());
-            }
-
+            String previousFile = existing.getFilePath();
             String fileName = storeFile(file);
+            // Удаляем старый файл, если он существует и больше ни на что не ссылается
+            if (previousFile != null && !previousFile.equals(fileName)) {
+                deleteFileIfUnreferenced(previousFile, recordId);
+            }
             existing.setFileName(file.getOriginalFilename());
             existing.setFilePath(fileName);
             logger.info("Файл протокола обновлен: {}", fileName);
@@ -185,9 +216,9 @@ public class TrainingService {
     public void deleteTrainingRecord(Long recordId) throws IOException {
         TrainingRecord record = getTrainingRecordById(recordId);
 
-        // Удаляем связанный файл, если он существует
+        // Удаляем связанный файл, если он существует и не нужен другим записям
         if (record.getFilePath() != null) {
-            deleteFile(record.getFilePath());
+            deleteFileIfUnreferenced(record.getFilePath(), recordId);
         }
 
         trainingRecordRepository.deleteById(recordId);
@@ -198,6 +229,20 @@ public class TrainingService {
         return trainingRecordRepository.findByEmployeeDepartmentId(departmentId);
     }
 
+    /**
+     * Матрица обучения отдела: ID сотрудника -> ID направления -> запись.
+     * Строится в памяти из одного запроса; если для пары есть несколько записей, берется первая
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<Long, TrainingRecord>> getTrainingMatrixByDepartment(Long departmentId) {
+        Map<Long, Map<Long, TrainingRecord>> matrix = new HashMap<>();
+        for (TrainingRecord record : trainingRecordRepository.findByDepartmentIdWithEmployeeAndDirection(departmentId)) {
+            matrix.computeIfAbsent(record.getEmployee().getId(), employeeId -> new HashMap<>())
+                    .putIfAbsent(record.getTrainingDirection().getId(), record);
+        }
+        return matrix;
+    }
+
     public List<TrainingRecord> getTrainingRecordsByEmployee(Long employeeId) {
         Employee employee = employeeService.getEmployeeById(employeeId);
         return trainingRecordRepository.findByEmployee(employee);
@@ -214,6 +259,10 @@ public class TrainingService {
 
     // ==================== РАБОТА С ФАЙЛАМИ ====================
 
+    /**
+     * Сохраняет загруженный файл в хранилище; имя файла - SHA-256 содержимого,
+     * поэтому один и тот же скан, загруженный к нескольким записям, хранится один раз
+     */
     private String storeFile(MultipartFile file) throws IOException {
         String originalFileName = file.getOriginalFilename();
         String fileExtension = "";
@@ -222,16 +271,27 @@ public class TrainingService {
             fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
         }
 
-        // Генерируем уникальное имя файла
-        String fileName = UUID.randomUUID().toString() + fileExtension;
-        Path targetLocation = this.fileStorageLocation.resolve(fileName);
-
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        String fileName;
+        try (InputStream inputStream = file.getInputStream()) {
+            fileName = protocolStorage.store(inputStream, fileExtension).getKey();
+        }
 
         logger.info("Файл сохранен: {} -> {}", originalFileName, fileName);
         return fileName;
     }
 
+    /**
+     * Файл с именем по содержимому может быть общим у нескольких записей:
+     * удаляем его, только если других ссылок нет
+     */
+    private void deleteFileIfUnreferenced(String fileName, Long recordId) throws IOException {
+        if (trainingRecordRepository.existsByFilePathAndIdNot(fileName, recordId)) {
+            logger.info("Файл протокола {} используется другими записями, не удаляется", fileName);
+            return;
+        }
+        deleteFile(fileName);
+    }
+
     /**
      * Загружает файл протокола вручную (ручная загрузка)
      */
@@ -240,22 +300,8 @@ public class TrainingService {
             throw new IllegalArgumentException("Файл не может быть пустым");
         }
 
-        // Генерируем уникальное имя файла
         String originalFileName = file.getOriginalFilename();
-        String fileExtension = "";
-
-        if (originalFileName != null && originalFileName.contains(".")) {
-            fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-        }
-
-        String fileName = String.format("protocol_manual_%d_%d_%s%s",
-                record.getEmployee().getId(),
-                record.getTrainingDirection().getId(),
-                UUID.randomUUID().toString().substring(0, 8),
-                fileExtension);
-
-        Path targetLocation = this.fileStorageLocation.resolve(fileName);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        String fileName = storeFile(file);
 
         record.setFileName(originalFileName);
         record.setFilePath(fileName);
@@ -272,8 +318,7 @@ public class TrainingService {
             throw new IllegalArgumentException("Имя файла не может быть пустым");
         }
 
-        Path targetLocation = this.fileStorageLocation.resolve(fileName);
-        Files.write(targetLocation, fileContent);
+        protocolStorage.put(fileName, new ByteArrayInputStream(fileContent));
 
         logger.info("Файл протокола сохранен: {} ({} байт)", fileName, fileContent.length);
     }
@@ -286,18 +331,12 @@ public class TrainingService {
             throw new IllegalArgumentException("Имя файла не может быть пустым");
         }
 
-        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-
-        // Проверяем безопасность пути
-        if (!filePath.startsWith(this.fileStorageLocation)) {
-            throw new SecurityException("Попытка доступа к файлу вне разрешенной директории");
-        }
-
-        if (!Files.exists(filePath)) {
+        // Имя файла проверяется хранилищем: пути с каталогами и ".." отклоняются (SecurityException)
+        try (InputStream inputStream = protocolStorage.open(fileName)) {
+            return inputStream.readAllBytes();
+        } catch (NoSuchFileException e) {
             throw new IOException("Файл не найден: " + fileName);
         }
-
-        return Files.readAllBytes(filePath);
     }
 
     /**
@@ -308,15 +347,7 @@ public class TrainingService {
             return;
         }
 
-        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-
-        // Проверяем безопасность пути
-        if (!filePath.startsWith(this.fileStorageLocation)) {
-            throw new SecurityException("Попытка удаления файла вне разрешенной директории");
-        }
-
-        if (Files.exists(filePath)) {
-            Files.delete(filePath);
+        if (protocolStorage.delete(fileName)) {
             logger.info("Файл протокола удален: {}", fileName);
         } else {
             logger.warn("Файл для удаления не найден: {}", fileName);
@@ -331,18 +362,17 @@ public class TrainingService {
             return null;
         }
 
-        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-
-        if (!Files.exists(filePath)) {
-            return null;
-        }
-
         try {
+            Optional<ProtocolStorage.StoredObject> stored = protocolStorage.stat(fileName);
+            if (stored.isEmpty()) {
+                return null;
+            }
+
             FileInfo info = new FileInfo();
             info.setFileName(fileName);
-            info.setFilePath(filePath.toString());
-            info.setFileSize(Files.size(filePath));
-            info.setLastModified(Files.getLastModifiedTime(filePath).toMillis());
+            info.setFilePath(protocolStorage.localPath(fileName).map(Path::toString).orElse(fileName));
+            info.setFileSize(stored.get().getSize());
+            info.setLastModified(stored.get().getLastModified());
 
             // Определяем тип файла по расширению
             String lowerFileName = fileName.toLowerCase();
@@ -382,8 +412,12 @@ public class TrainingService {
             return false;
         }
 
-        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-        return Files.exists(filePath) && Files.isReadable(filePath);
+        try {
+            return protocolStorage.stat(fileName).isPresent();
+        } catch (IOException e) {
+            logger.warn("Не удалось проверить файл протокола {}: {}", fileName, e.getMessage());
+            return false;
+        }
     }
 
     /**
@@ -394,11 +428,9 @@ public class TrainingService {
             return 0;
         }
 
-        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-        if (Files.exists(filePath)) {
-            return Files.size(filePath);
-        }
-        return 0;
+        return protocolStorage.stat(fileName)
+                .map(ProtocolStorage.StoredObject::getSize)
+                .orElse(0L);
     }
 
     /**
@@ -412,27 +444,24 @@ public class TrainingService {
     // ==================== СТАТИСТИКА И ФИЛЬТРАЦИЯ ====================
 
     public List<TrainingRecord> getExpiringRecords() {
-        List<TrainingRecord> allRecords = trainingRecordRepository.findAll();
-        return allRecords.stream()
-                .filter(record -> record.isExpiringSoon() &&
-                        (record.getApplicable() == null || record.getApplicable()))
-                .toList();
+        LocalDate today = LocalDate.now();
+        return trainingRecordRepository.findExpiring(today, expiringBefore(today));
+    }
+
+    /**
+     * Первые limit истекающих записей, ближайшие первыми
+     */
+    public List<TrainingRecord> getExpiringRecords(int limit) {
+        LocalDate today = LocalDate.now();
+        return trainingRecordRepository.findExpiring(today, expiringBefore(today), PageRequest.of(0, limit));
     }
 
     public List<TrainingRecord> getExpiredRecords() {
-        List<TrainingRecord> allRecords = trainingRecordRepository.findAll();
-        return allRecords.stream()
-                .filter(record -> record.isExpired() &&
-                        (record.getApplicable() == null || record.getApplicable()))
-                .toList();
+        return trainingRecordRepository.findExpired(LocalDate.now());
     }
 
     public List<TrainingRecord> getValidRecords() {
-        List<TrainingRecord> allRecords = trainingRecordRepository.findAll();
-        return allRecords.stream()
-                .filter(record -> !record.isExpired() &&
-                        (record.getApplicable() == null || record.getApplicable()))
-                .toList();
+        return trainingRecordRepository.findNotExpired(LocalDate.now());
     }
 
     public long getTotalTrainingRecordsCount() {
@@ -440,15 +469,16 @@ public class TrainingService {
     }
 
     public long getExpiringRecordsCount() {
-        return getExpiringRecords().size();
+        LocalDate today = LocalDate.now();
+        return trainingRecordRepository.countExpiring(today, expiringBefore(today));
     }
 
     public long getExpiredRecordsCount() {
-        return getExpiredRecords().size();
+        return trainingRecordRepository.countExpired(LocalDate.now());
     }
 
     public long getValidRecordsCount() {
-        return getValidRecords().size();
+        return trainingRecordRepository.countNotExpired(LocalDate.now());
     }
 
     /**
@@ -457,17 +487,133 @@ public class TrainingService {
     public List<TrainingRecord> getRecordsExpiringInMonth(int year, int month) {
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
+        return trainingRecordRepository.findApplicableByNextExamDateBetween(startDate, endDate);
+    }
+
+    /**
+     * Граница "скоро истекает" для запроса: первая дата следующего экзамена, при которой
+     * TrainingRecord.isExpiringSoon() уже ложно (nextExamDate.minusMonths(3) не раньше сегодня).
+     * Простое today.plusMonths(3) в конце месяца дает на несколько дней меньше
+     */
+    static LocalDate expiringBefore(LocalDate today) {
+        LocalDate boundary = today.plusMonths(3);
+        while (boundary.minusMonths(3).isBefore(today)) {
+            boundary = boundary.plusDays(1);
+        }
+        return boundary;
+    }
+
+    /**
+     * Заполнение next_exam_date у записей, созданных до появления столбца
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillNextExamDates() {
+        int updated = trainingRecordRepository.backfillNextExamDates();
+        if (updated > 0) {
+            logger.info("Заполнена дата следующего экзамена у записей: {}", updated);
+        }
+    }
+
+    // ==================== ПОСТРАНИЧНЫЕ СПИСКИ ====================
+
+    /**
+     * Все записи в порядке создания. cursor - значение getNextCursor() предыдущей страницы, null для первой
+     */
+    public KeysetPage<TrainingRecordView> getRecordsPage(String cursor) {
+        return idPage(size -> trainingRecordRepository.findViewsAfter(parseIdCursor(cursor), size));
+    }
+
+    public KeysetPage<TrainingRecordView> getDepartmentRecordsPage(Long departmentId, String cursor) {
+        return idPage(size -> trainingRecordRepository.findViewsByDepartmentAfter(
+                departmentId, parseIdCursor(cursor), size));
+    }
+
+    public KeysetPage<TrainingRecordView> getRecordsWithFilesPage(String cursor) {
+        return idPage(size -> trainingRecordRepository.findViewsWithFilesAfter(parseIdCursor(cursor), size));
+    }
 
-        List<TrainingRecord> allRecords = trainingRecordRepository.findAll();
-        return allRecords.stream()
-                .filter(record -> {
-                    LocalDate nextExamDate = record.getNextExamDate();
-                    if (nextExamDate == null || record.getApplicable() == null || !record.getApplicable()) {
-                        return false;
-                    }
-                    return !nextExamDate.isBefore(startDate) && !nextExamDate.isAfter(endDate);
-                })
-                .toList();
+    /**
+     * Заполненные записи (с датой и файлом), новые экзамены первыми
+     */
+    public KeysetPage<TrainingRecordView> getCompleteRecordsPage(String cursor) {
+        // Первая страница начинается "до" максимальной даты PostgreSQL
+        DateCursor position = parseDateCursor(cursor, new DateCursor(LocalDate.of(9999, 12, 31), Long.MAX_VALUE));
+        return datePage(trainingRecordRepository.findCompleteViewsBefore(
+                position.date, position.id, PageRequest.of(0, RECORDS_PAGE_SIZE + 1)), TrainingRecordView::getExamDate);
+    }
+
+    public KeysetPage<TrainingRecordView> getRecordsByExamDatePage(LocalDate startDate, LocalDate endDate,
+                                                                   String cursor) {
+        // Первая страница начинается после предыдущего дня, чтобы в нее вошли записи с датой startDate
+        DateCursor position = parseDateCursor(cursor, new DateCursor(startDate.minusDays(1), Long.MAX_VALUE));
+        return datePage(trainingRecordRepository.findViewsByExamDateBetweenAfter(startDate, endDate,
+                position.date, position.id, PageRequest.of(0, RECORDS_PAGE_SIZE + 1)), TrainingRecordView::getExamDate);
+    }
+
+    /**
+     * Истекающие записи, ближайшие первыми
+     */
+    public KeysetPage<TrainingRecordView> getExpiringRecordsPage(String cursor) {
+        LocalDate today = LocalDate.now();
+        // Условие срока уже отсекает today, поэтому первая страница начинается после него
+        DateCursor position = parseDateCursor(cursor, new DateCursor(today, Long.MAX_VALUE));
+        return datePage(trainingRecordRepository.findExpiringViewsAfter(today, expiringBefore(today),
+                position.date, position.id, PageRequest.of(0, RECORDS_PAGE_SIZE + 1)), TrainingRecordView::getNextExamDate);
+    }
+
+    // Запрашивается на одну строку больше страницы: так видно, есть ли следующая
+    private static KeysetPage<TrainingRecordView> idPage(
+            Function<Pageable, List<TrainingRecordView>> query) {
+        List<TrainingRecordView> rows = query.apply(PageRequest.of(0, RECORDS_PAGE_SIZE + 1));
+        if (rows.size() <= RECORDS_PAGE_SIZE) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<TrainingRecordView> items = rows.subList(0, RECORDS_PAGE_SIZE);
+        return new KeysetPage<>(items, String.valueOf(items.get(items.size() - 1).getId()));
+    }
+
+    private static KeysetPage<TrainingRecordView> datePage(
+            List<TrainingRecordView> rows, Function<TrainingRecordView, LocalDate> sortDate) {
+        if (rows.size() <= RECORDS_PAGE_SIZE) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<TrainingRecordView> items = rows.subList(0, RECORDS_PAGE_SIZE);
+        TrainingRecordView last = items.get(items.size() - 1);
+        return new KeysetPage<>(items, sortDate.apply(last) + "_" + last.getId());
+    }
+
+    private static long parseIdCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Неверная позиция списка: " + cursor);
+        }
+    }
+
+    private static DateCursor parseDateCursor(String cursor, DateCursor firstPage) {
+        if (cursor == null || cursor.isEmpty()) {
+            return firstPage;
+        }
+        int separator = cursor.indexOf('_');
+        try {
+            return new DateCursor(LocalDate.parse(cursor.substring(0, separator)),
+                    Long.parseLong(cursor.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Неверная позиция списка: " + cursor);
+        }
+    }
+
+    private static class DateCursor {
+        private final LocalDate date;
+        private final long id;
+
+        private DateCursor(LocalDate date, long id) {
+            this.date = date;
+            this.id = id;
+        }
     }
 
     // ==================== ВСПОМОГАТЕЛЬНЫЕ КЛАССЫ ====================
@@ -540,6 +686,8 @@ public class TrainingService {
         private long imageCount;
         private long documentCount;
         private long otherCount;
+        // Когда счетчики последний раз сверялись с хранилищем
+        private LocalDateTime reconciledAt;
 
         // Геттеры и сеттеры
         public long getTotalFiles() { return totalFiles; }
@@ -560,6 +708,9 @@ public class TrainingService {
         public long getOtherCount() { return otherCount; }
         public void setOtherCount(long otherCount) { this.otherCount = otherCount; }
 
+        public LocalDateTime getReconciledAt() { return reconciledAt; }
+        public void setReconciledAt(LocalDateTime reconciledAt) { this.reconciledAt = reconciledAt; }
+
         public String getFormattedTotalSize() {
             if (totalSize < 1024) {
                 return totalSize + " B";
@@ -574,79 +725,29 @@ public class TrainingService {
     }
 
     /**
-     * Получает статистику по файлам протоколов
+     * Получает статистику по файлам протоколов.
+     * Счетчики ведутся при записи и удалении файлов, хранилище не обходится
      */
-    public ProtocolStats getProtocolStats() throws IOException {
-        ProtocolStats stats = new ProtocolStats();
-
-        if (Files.exists(fileStorageLocation) && Files.isDirectory(fileStorageLocation)) {
-            try (var files = Files.list(fileStorageLocation)) {
-                List<Path> fileList = files.filter(Files::isRegularFile).toList();
-
-                stats.setTotalFiles(fileList.size());
-
-                for (Path file : fileList) {
-                    long fileSize = Files.size(file);
-                    stats.setTotalSize(stats.getTotalSize() + fileSize);
-
-                    String fileName = file.getFileName().toString().toLowerCase();
-                    if (fileName.endsWith(".pdf")) {
-                        stats.setPdfCount(stats.getPdfCount() + 1);
-                    } else if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") ||
-                            fileName.endsWith(".png") || fileName.endsWith(".gif")) {
-                        stats.setImageCount(stats.getImageCount() + 1);
-                    } else if (fileName.endsWith(".doc") || fileName.endsWith(".docx") ||
-                            fileName.endsWith(".xls") || fileName.endsWith(".xlsx")) {
-                        stats.setDocumentCount(stats.getDocumentCount() + 1);
-                    } else {
-                        stats.setOtherCount(stats.getOtherCount() + 1);
-                    }
-                }
-            }
-        }
+    public ProtocolStats getProtocolStats() {
+        ProtocolStorageStatisticsService.Statistics statistics = protocolStorageStatisticsService.getStatistics();
 
+        ProtocolStats stats = new ProtocolStats();
+        stats.setTotalFiles(statistics.getTotalFiles());
+        stats.setTotalSize(statistics.getTotalBytes());
+        stats.setPdfCount(statistics.get(ProtocolStorageStat.Category.PDF).getFiles());
+        stats.setImageCount(statistics.get(ProtocolStorageStat.Category.IMAGE).getFiles());
+        stats.setDocumentCount(statistics.get(ProtocolStorageStat.Category.DOCUMENT).getFiles());
+        stats.setOtherCount(statistics.get(ProtocolStorageStat.Category.OTHER).getFiles());
+        stats.setReconciledAt(statistics.getReconciledAt());
         return stats;
     }
 
     /**
-     * Очищает неиспользуемые файлы протоколов
+     * Запускает в фоне очистку неиспользуемых файлов протоколов (старше protocol.storage.gc.min-age-days,
+     * с учетом protocol.storage.gc.dry-run). Обход хранилища идет вне транзакции этого сервиса
      */
-    public int cleanupOrphanedProtocolFiles() throws IOException {
-        int deletedCount = 0;
-
-        if (Files.exists(fileStorageLocation) && Files.isDirectory(fileStorageLocation)) {
-            // Получаем список файлов, на которые есть ссылки в базе данных
-            List<TrainingRecord> allRecords = trainingRecordRepository.findAll();
-            List<String> referencedFiles = allRecords.stream()
-                    .map(TrainingRecord::getFilePath)
-                    .filter(fileName -> fileName != null && !fileName.isEmpty())
-                    .toList();
-
-            // Проверяем все файлы в директории
-            try (var files = Files.list(fileStorageLocation)) {
-                List<Path> fileList = files.filter(Files::isRegularFile).toList();
-
-                for (Path file : fileList) {
-                    String fileName = file.getFileName().toString();
-
-                    // Если файл не упоминается в базе данных
-                    if (!referencedFiles.contains(fileName)) {
-                        // Проверяем возраст файла (например, удаляем файлы старше 30 дней)
-                        long fileAgeDays = Files.getLastModifiedTime(file).toMillis();
-                        long currentTime = System.currentTimeMillis();
-                        long ageInDays = (currentTime - fileAgeDays) / (1000 * 60 * 60 * 24);
-
-                        if (ageInDays > 30) {
-                            Files.delete(file);
-                            deletedCount++;
-                            logger.info("Удален неиспользуемый файл протокола: {} (возраст {} дней)",
-                                    fileName, ageInDays);
-                        }
-                    }
-                }
-            }
-        }
-
-        return deletedCount;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<ProtocolStorageGarbageCollector.Report> cleanupOrphanedProtocolFiles() {
+        return protocolStorageGarbageCollector.collectAsync();
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.company.training.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Отложенные действия над in-memory индексами: изменения применяются только после
+ * успешного коммита, чтобы откат транзакции не оставлял индекс в несогласованном состоянии
+ */
+final class TransactionHooks {
+
+    private TransactionHooks() {}
+
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import com.company.training.service.AhoCorasickMatcher;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickMatcherTest {
+
+    @Test
+    void testFindAll_FindsOverlappingAndNestedPatterns() {
+        AhoCorasickMatcher<String> matcher = AhoCorasickMatcher.<String>builder()
+                .add("he", "he")
+                .add("she", "she")
+                .add("his", "his")
+                .add("hers", "hers")
+                .build();
+
+        List<AhoCorasickMatcher.Hit<String>> hits = matcher.findAll("ushers");
+
+        List<String> found = hits.stream()
+                .map(hit -> hit.getValue() + "@" + hit.getStart())
+                .collect(Collectors.toList());
+        assertEquals(List.of("she@1", "he@2", "hers@2"), found);
+    }
+
+    @Test
+    void testFindAll_RussianNames() {
+        AhoCorasickMatcher<Long> matcher = AhoCorasickMatcher.<Long>builder()
+                .add("иванов иван иванович", 1L)
+                .add("иванов иван", 1L)
+                .add("петров петр", 2L)
+                .build();
+
+        String text = "протокол проверки знаний петров петр сергеевич иванов иван иванович";
+        List<AhoCorasickMatcher.Hit<Long>> hits = matcher.findAll(text);
+
+        assertEquals(3, hits.size());
+        assertEquals(2L, hits.get(0).getValue());
+        assertEquals(text.indexOf("петров"), hits.get(0).getStart());
+        assertEquals(text.indexOf("иванов"), hits.get(1).getStart());
+        assertEquals(text.length(), hits.get(2).getEnd());
+    }
+
+    @Test
+    void testFindAll_SamePatternWithSeveralValues() {
+        AhoCorasickMatcher<Long> matcher = AhoCorasickMatcher.<Long>builder()
+                .add("сидоров олег", 3L)
+                .add("сидоров олег", 4L)
+                .build();
+
+        List<AhoCorasickMatcher.Hit<Long>> hits = matcher.findAll("сидоров олег");
+
+        assertEquals(2, hits.size());
+        assertTrue(hits.stream().anyMatch(hit -> hit.getValue() == 3L));
+        assertTrue(hits.stream().anyMatch(hit -> hit.getValue() == 4L));
+    }
+
+    @Test
+    void testFindAll_NoMatches() {
+        AhoCorasickMatcher<Long> matcher = AhoCorasickMatcher.<Long>builder()
+                .add("кузнецов", 5L)
+                .add("", 6L)
+                .build();
+
+        assertTrue(matcher.findAll("протокол без фамилий").isEmpty());
+        assertEquals(1, matcher.getPatternCount());
+    }
+}
@@ -0,0 +1,50 @@
+import com.company.training.service.BkTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BkTreeTest {
+
+    private BkTree<Long> buildTree() {
+        BkTree<Long> tree = new BkTree<>();
+        tree.add("иванов", 1L);
+        tree.add("иванова", 2L);
+        tree.add("петров", 3L);
+        tree.add("петрова", 4L);
+        tree.add("сидоренко", 5L);
+        tree.add("иванов", 6L);
+        return tree;
+    }
+
+    @Test
+    void testSearch_ExactMatchReturnsAllValues() {
+        List<BkTree.Match<Long>> matches = buildTree().search("иванов", 0);
+
+        assertEquals(1, matches.size());
+        assertEquals(0, matches.get(0).getDistance());
+        assertEquals(List.of(1L, 6L), matches.get(0).getValues());
+    }
+
+    @Test
+    void testSearch_OcrErrorsWithinDistance() {
+        // OCR потерял букву в фамилии
+        Map<String, Integer> found = buildTree().search("ивнов", 1).stream()
+                .collect(Collectors.toMap(BkTree.Match::getKey, BkTree.Match::getDistance));
+
+        assertEquals(Map.of("иванов", 1), found);
+
+        Map<String, Integer> wider = buildTree().search("ивнов", 2).stream()
+                .collect(Collectors.toMap(BkTree.Match::getKey, BkTree.Match::getDistance));
+        assertEquals(Map.of("иванов", 1, "иванова", 2), wider);
+    }
+
+    @Test
+    void testSearch_NothingCloseEnough() {
+        assertTrue(buildTree().search("кузнецов", 2).isEmpty());
+        assertEquals(5, buildTree().size());
+    }
+}
@@ -0,0 +1,305 @@
+import com.company.training.service.LocalProtocolStorage;
+import com.company.training.service.ProtocolStorage;
+import com.company.training.service.S3ProtocolStorage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProtocolStorageTest {
+
+    private static final byte[] CONTENT = "%PDF-1.7 protocol page".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testStore_DeduplicatesIntoShardDirectories() throws Exception {
+        LocalProtocolStorage storage = new LocalProtocolStorage(tempDir.resolve("protocols"));
+
+        ProtocolStorage.StoredObject first = storage.store(new ByteArrayInputStream(CONTENT), ".PDF");
+        Path stored = storage.localPath(first.getKey()).orElseThrow();
+        Files.setLastModifiedTime(stored, FileTime.from(Instant.now().minus(Duration.ofDays(90))));
+        ProtocolStorage.StoredObject second = storage.store(new ByteArrayInputStream(CONTENT), ".pdf");
+
+        assertEquals(sha256(CONTENT) + ".pdf", first.getKey());
+        assertEquals(first.getKey(), second.getKey());
+        // Повторная загрузка обновляет дату, чтобы сборщик не удалил файл до коммита новой записи
+        assertTrue(Files.getLastModifiedTime(stored).toInstant().isAfter(Instant.now().minus(Duration.ofDays(1))));
+        Path file = storage.localPath(first.getKey()).orElseThrow();
+        assertEquals(storage.getRoot().resolve(first.getKey().substring(0, 2))
+                .resolve(first.getKey().substring(2, 4)).resolve(first.getKey()), file);
+        assertArrayEquals(CONTENT, Files.readAllBytes(file));
+        assertEquals(1, listKeys(storage).size());
+    }
+
+    @Test
+    void testList_ReadsLegacyFlatFilesAndDetectsCorruption() throws Exception {
+        LocalProtocolStorage storage = new LocalProtocolStorage(tempDir.resolve("protocols"));
+        Files.write(storage.getRoot().resolve("legacy.pdf"), CONTENT);
+        String key = storage.store(new ByteArrayInputStream(CONTENT), ".pdf").getKey();
+
+        assertEquals(List.of(key, "legacy.pdf"), listKeys(storage));
+        try (InputStream in = storage.open("legacy.pdf", 5)) {
+            assertArrayEquals(Arrays.copyOfRange(CONTENT, 5, CONTENT.length), in.readAllBytes());
+        }
+        assertTrue(storage.verify(key));
+
+        Files.write(storage.localPath(key).orElseThrow(), "tampered".getBytes(StandardCharsets.UTF_8));
+        assertFalse(storage.verify(key));
+
+        assertTrue(storage.delete("legacy.pdf"));
+        assertFalse(storage.delete("legacy.pdf"));
+        assertThrows(SecurityException.class, () -> storage.open("../application.properties"));
+    }
+
+    @Test
+    void testS3Storage_RoundTripAgainstStandIn() throws Exception {
+        FakeS3 s3 = new FakeS3();
+        S3ProtocolStorage storage = startS3(s3);
+
+        ProtocolStorage.StoredObject stored = storage.store(new ByteArrayInputStream(CONTENT), ".pdf");
+        String key = stored.getKey();
+        assertEquals(sha256(CONTENT) + ".pdf", key);
+        assertTrue(s3.objects.containsKey("training/protocols/" + ProtocolStorage.shardPrefix(key) + "/" + key));
+
+        // Повторная загрузка того же содержимого не отправляет объект заново
+        int putsBefore = s3.puts;
+        String objectKey = "training/protocols/" + ProtocolStorage.shardPrefix(key) + "/" + key;
+        s3.modified.put(objectKey, Instant.now().minus(Duration.ofDays(90)));
+        storage.store(new ByteArrayInputStream(CONTENT), ".pdf");
+        assertEquals(putsBefore, s3.puts);
+        assertTrue(s3.modified.get(objectKey).isAfter(Instant.now().minus(Duration.ofDays(1))));
+
+        storage.put("protocol_1_2_20240101_page3.pdf", new ByteArrayInputStream(CONTENT));
+        assertEquals(CONTENT.length, storage.stat(key).orElseThrow().getSize());
+        try (InputStream in = storage.open(key, 5)) {
+            assertArrayEquals(Arrays.copyOfRange(CONTENT, 5, CONTENT.length), in.readAllBytes());
+        }
+        // Ограниченный диапазон, в том числе с нулевого байта, запрашивается с обеими границами
+        try (InputStream in = storage.open(key, 0, 3)) {
+            assertArrayEquals(Arrays.copyOfRange(CONTENT, 0, 4), in.readAllBytes());
+        }
+        assertEquals("bytes=0-3", s3.lastRange);
+        try (InputStream in = storage.open(key, 5, 8)) {
+            assertArrayEquals(Arrays.copyOfRange(CONTENT, 5, 9), in.readAllBytes());
+        }
+        assertEquals("bytes=5-8", s3.lastRange);
+        assertTrue(storage.verify(key));
+
+        // Листинг идет страницами по два объекта
+        storage.put("protocol_manual.docx", new ByteArrayInputStream(CONTENT));
+        List<String> keys = listKeys(storage);
+        assertEquals(3, keys.size());
+        assertTrue(keys.contains("protocol_1_2_20240101_page3.pdf"));
+
+        assertTrue(storage.delete(key));
+        assertFalse(storage.delete(key));
+        assertTrue(storage.stat(key).isEmpty());
+        assertThrows(NoSuchFileException.class, () -> storage.open(key));
+    }
+
+    @Test
+    void testPut_RejectedS3UploadIsNotStored() throws Exception {
+        FakeS3 s3 = new FakeS3();
+        s3.corruptUploads = true;
+        S3ProtocolStorage storage = startS3(s3);
+
+        assertThrows(IOException.class, () -> storage.put("page.pdf", new ByteArrayInputStream(CONTENT)));
+        assertTrue(s3.objects.isEmpty());
+    }
+
+    private S3ProtocolStorage startS3(FakeS3 s3) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", s3::handle);
+        server.start();
+        return new S3ProtocolStorage(URI.create("http://127.0.0.1:" + server.getAddress().getPort()),
+                "training", "protocols", "us-east-1", "minio", "minio-secret", tempDir.resolve("spool"));
+    }
+
+    private static List<String> listKeys(ProtocolStorage storage) throws IOException {
+        List<String> keys = new ArrayList<>();
+        storage.forEach(object -> keys.add(object.getKey()));
+        keys.sort(null);
+        return keys;
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    /**
+     * Минимальная замена MinIO: PUT/GET/HEAD/DELETE объектов и ListObjectsV2.
+     * Как и настоящее хранилище, сверяет x-amz-content-sha256 и Content-MD5 с полученным телом
+     */
+    private static class FakeS3 {
+        private static final int PAGE_SIZE = 2;
+
+        final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+        final Map<String, Instant> modified = new HashMap<>();
+        volatile boolean corruptUploads;
+        volatile int puts;
+        volatile String lastRange;
+
+        void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+                    send(exchange, 403, "AccessDenied");
+                    return;
+                }
+                String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8).substring(1);
+                String query = exchange.getRequestURI().getRawQuery();
+                switch (exchange.getRequestMethod()) {
+                    case "PUT" -> put(exchange, path);
+                    case "GET" -> {
+                        if (query != null && query.contains("list-type=2")) {
+                            list(exchange, path, query);
+                        } else {
+                            get(exchange, path);
+                        }
+                    }
+                    case "HEAD" -> head(exchange, path);
+                    case "DELETE" -> {
+                        objects.remove(path);
+                        exchange.sendResponseHeaders(204, -1);
+                    }
+                    default -> send(exchange, 405, "MethodNotAllowed");
+                }
+            } catch (Exception e) {
+                send(exchange, 500, e.toString());
+            }
+        }
+
+        private void put(HttpExchange exchange, String path) throws Exception {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+            if (copySource != null) {
+                byte[] source = objects.get(URLDecoder.decode(copySource, StandardCharsets.UTF_8).substring(1));
+                if (source == null) {
+                    send(exchange, 404, "NoSuchKey");
+                    return;
+                }
+                objects.put(path, source);
+                modified.put(path, Instant.now());
+                send(exchange, 200, "<CopyObjectResult/>");
+                return;
+            }
+            if (corruptUploads) {
+                body = Arrays.copyOf(body, body.length + 1);
+            }
+            String md5 = Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(body));
+            if (!sha256(body).equals(exchange.getRequestHeaders().getFirst("x-amz-content-sha256"))) {
+                send(exchange, 400, "XAmzContentSHA256Mismatch");
+            } else if (!md5.equals(exchange.getRequestHeaders().getFirst("Content-MD5"))) {
+                send(exchange, 400, "BadDigest");
+            } else {
+                objects.put(path, body);
+                modified.put(path, Instant.now());
+                puts++;
+                exchange.sendResponseHeaders(200, -1);
+            }
+        }
+
+        private void get(HttpExchange exchange, String path) throws IOException {
+            byte[] body = objects.get(path);
+            if (body == null) {
+                send(exchange, 404, "NoSuchKey");
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("range");
+            lastRange = range;
+            int status = 200;
+            if (range != null) {
+                String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                int end = bounds[1].isEmpty() ? body.length : Math.min(body.length, Integer.parseInt(bounds[1]) + 1);
+                body = Arrays.copyOfRange(body, Integer.parseInt(bounds[0]), end);
+                status = 206;
+            }
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        }
+
+        private void head(HttpExchange exchange, String path) throws IOException {
+            byte[] body = objects.get(path);
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Last-Modified",
+                    DateTimeFormatter.RFC_1123_DATE_TIME.format(modified.get(path).atOffset(ZoneOffset.UTC)));
+            // У HEAD нет тела, длину объекта передаем заголовком
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(200, -1);
+        }
+
+        private void list(HttpExchange exchange, String bucket, String query) throws IOException {
+            Map<String, String> params = new HashMap<>();
+            for (String pair : query.split("&")) {
+                String[] parts = pair.split("=", 2);
+                params.put(parts[0], URLDecoder.decode(parts.length > 1 ? parts[1] : "", StandardCharsets.UTF_8));
+            }
+            String prefix = bucket + "/" + params.getOrDefault("prefix", "");
+            List<String> keys = objects.keySet().stream().filter(key -> key.startsWith(prefix)).toList();
+            int from = Integer.parseInt(params.getOrDefault("continuation-token", "0"));
+            int to = Math.min(keys.size(), from + PAGE_SIZE);
+
+            StringBuilder xml = new StringBuilder("<ListBucketResult>");
+            for (String key : keys.subList(from, to)) {
+                xml.append("<Contents><Key>").append(key.substring(bucket.length() + 1)).append("</Key>")
+                        .append("<Size>").append(objects.get(key).length).append("</Size>")
+                        .append("<LastModified>").append(modified.get(key)).append("</LastModified></Contents>");
+            }
+            xml.append("<IsTruncated>").append(to < keys.size()).append("</IsTruncated>");
+            if (to < keys.size()) {
+                xml.append("<NextContinuationToken>").append(to).append("</NextContinuationToken>");
+            }
+            send(exchange, 200, xml.append("</ListBucketResult>").toString());
+        }
+
+        private static void send(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import com.company.training.TrainingManagementApplication;
+import com.company.training.entity.Department;
+import com.company.training.entity.Employee;
+import com.company.training.entity.TrainingDirection;
+import com.company.training.entity.TrainingRecord;
+import com.company.training.repository.EmployeeRepository;
+import com.company.training.repository.TrainingRecordRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Число SQL запросов на сценарий чтения записей: связи, которые выводятся
+ * в шаблонах и документах, должны загружаться тем же запросом, без N+1
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=TrainingRecordFetchPlanTest$SqlStatementCounter",
+        "spring.jpa.show-sql=false"
+})
+@ContextConfiguration(classes = TrainingManagementApplication.class)
+class TrainingRecordFetchPlanTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TrainingRecordRepository trainingRecordRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private final LocalDate today = LocalDate.of(2024, 1, 15);
+    private Department department;
+    private Employee employee;
+
+    @BeforeEach
+    void setUp() {
+        department = entityManager.persist(new Department("Цех 1", null));
+        Department otherDepartment = entityManager.persist(new Department("Цех 2", null));
+        TrainingDirection safety = entityManager.persist(
+                new TrainingDirection("Охрана труда", 12, BigDecimal.ZERO, null));
+        TrainingDirection electrical = entityManager.persist(
+                new TrainingDirection("Электробезопасность", 12, BigDecimal.ZERO, null));
+
+        employee = entityManager.persist(new Employee("Иванов Иван Иванович", "Мастер", "ivanov@company.com", department));
+        Employee other = entityManager.persist(
+                new Employee("Петрова Анна Сергеевна", "Инженер", "petrova@company.com", otherDepartment));
+
+        // Следующие экзамены: через месяц (скоро истекает) и месяц назад (просрочено)
+        persistRecord(employee, safety, today.minusMonths(11));
+        persistRecord(employee, electrical, today.minusMonths(13));
+        persistRecord(other, safety, today.minusMonths(11));
+        persistRecord(other, electrical, today.minusMonths(13));
+
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementCounter.reset();
+    }
+
+    @Test
+    void testDepartmentMatrix_SingleStatement() {
+        List<TrainingRecord> records =
+                trainingRecordRepository.findByDepartmentIdWithEmployeeAndDirection(department.getId());
+
+        assertEquals(2, records.size());
+        records.forEach(TrainingRecordFetchPlanTest::render);
+        assertEquals(1, SqlStatementCounter.count());
+    }
+
+    @Test
+    void testExpiringAndExpiredLists_SingleStatementEach() {
+        List<TrainingRecord> expiring = trainingRecordRepository.findExpiring(today, today.plusMonths(3));
+        assertEquals(2, expiring.size());
+        expiring.forEach(TrainingRecordFetchPlanTest::render);
+        assertEquals(1, SqlStatementCounter.count());
+
+        entityManager.clear();
+        SqlStatementCounter.reset();
+        List<TrainingRecord> expired = trainingRecordRepository.findExpired(today);
+        assertEquals(2, expired.size());
+        expired.forEach(TrainingRecordFetchPlanTest::render);
+        assertEquals(1, SqlStatementCounter.count());
+    }
+
+    @Test
+    void testTrainingRequestRecords_SingleStatement() {
+        LocalDate month = today.plusMonths(1).withDayOfMonth(1);
+        List<TrainingRecord> records = trainingRecordRepository.findApplicableByNextExamDateBetween(
+                month, month.withDayOfMonth(month.lengthOfMonth()));
+
+        assertEquals(2, records.size());
+        // generateTrainingRequestDocument и getEmployeeList читают ФИО, должность и направление
+        for (TrainingRecord record : records) {
+            assertNotNull(record.getEmployee().getPosition());
+            render(record);
+        }
+        assertEquals(1, SqlStatementCounter.count());
+    }
+
+    @Test
+    void testProtocolReviewEmployee_SingleStatement() {
+        Employee found = employeeRepository.findWithDepartmentById(employee.getId()).orElseThrow();
+
+        assertEquals("Цех 1", found.getDepartment().getName());
+        assertEquals(1, SqlStatementCounter.count());
+    }
+
+    @Test
+    void testLazyAssociations_CountedByHarness() {
+        // Контроль самого счетчика: без графа каждая связь загружается отдельным запросом
+        List<TrainingRecord> records = trainingRecordRepository.findAll();
+        records.forEach(TrainingRecordFetchPlanTest::render);
+
+        assertTrue(SqlStatementCounter.count() > 1);
+    }
+
+    private void persistRecord(Employee employee, TrainingDirection direction, LocalDate examDate) {
+        TrainingRecord record = new TrainingRecord(employee, direction);
+        record.setExamDate(examDate);
+        record.setApplicable(true);
+        entityManager.persist(record);
+    }
+
+    private static void render(TrainingRecord record) {
+        assertNotNull(record.getEmployee().getFullName());
+        assertNotNull(record.getEmployee().getDepartment().getName());
+        assertNotNull(record.getTrainingDirection().getName());
+    }
+
+    public static class SqlStatementCounter implements StatementInspector {
+
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        static void reset() {
+            COUNT.set(0);
+        }
+
+        static int count() {
+            return COUNT.get();
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.incrementAndGet();
+            return sql;
+        }
+    }
+}
@@ -93,15 +93,16 @@ class TrainingRequestServiceTest {
                 LocalDate.of(2023, 4, 1)
         );
 
-        List<TrainingRecord> allRecords = Arrays.asList(record1, record2);
-
-        when(trainingService.getAllTrainingRecords()).thenReturn(allRecords);
+        // Отбор по дате следующего экзамена выполняется запросом в БД:
+        // record2: экзамен 01.04.2023 + 12 месяцев = 01.04.2024
+        // 3 месяца до 01.04.2024 = 01.01.2024 (январь 2024) - запрашивается апрель 2024
+        assertEquals(LocalDate.of(2024, 4, 1), record2.getNextExamDate());
+        assertNotEquals(4, record1.getNextExamDate().getMonthValue());
+        when(trainingService.getRecordsExpiringInMonth(2024, 4)).thenReturn(Collections.singletonList(record2));
 
         List<TrainingRecord> result = trainingRequestService
                 .getRecordsWithThreeMonthPeriodStartingThisMonth();
 
-        // record2: экзамен 01.04.2023 + 12 месяцев = 01.04.2024
-        // 3 месяца до 01.04.2024 = 01.01.2024 (январь 2024)
         assertEquals(1, result.size(), "Должна быть только одна запись для января 2024");
         assertEquals("Петрова Анна Сергеевна", result.get(0).getEmployee().getFullName());
     }
@@ -123,7 +124,7 @@ class TrainingRequestServiceTest {
                 LocalDate.of(2023, 4, 1)
         );
 
-        when(trainingService.getAllTrainingRecords())
+        when(trainingService.getRecordsExpiringInMonth(2024, 4))
                 .thenReturn(Collections.singletonList(record));
 
         when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
@@ -154,14 +155,14 @@ class TrainingRequestServiceTest {
         when(userRepository.findByAdminTrueAndEnabledTrue())
                 .thenReturn(Collections.emptyList());
 
-        // Нам нужна заглушка для getAllTrainingRecords, чтобы метод продолжал выполнение
+        // Нам нужна заглушка для getRecordsExpiringInMonth, чтобы метод продолжал выполнение
         TrainingRecord record = createTestTrainingRecord(
                 "Иванов Иван Иванович",
                 "Охрана труда",
                 12,
                 LocalDate.of(2023, 4, 1)
         );
-        when(trainingService.getAllTrainingRecords())
+        when(trainingService.getRecordsExpiringInMonth(2024, 4))
                 .thenReturn(Collections.singletonList(record));
 
         trainingRequestService.checkAndSendTrainingRequests();
@@ -238,10 +239,11 @@ class TrainingRequestServiceTest {
 
         List<TrainingRecord> allRecords = Arrays.asList(record1, record2, record3);
 
-        when(trainingService.getAllTrainingRecords()).thenReturn(allRecords);
+        when(trainingService.getRecordsExpiringInMonth(2024, 4)).thenReturn(allRecords);
 
         List<TrainingRecord> result = trainingRequestService
                 .getRecordsWithThreeMonthPeriodStartingThisMonth();
+        verify(trainingService).getRecordsExpiringInMonth(2024, 4);
 
         System.out.println("Найдено записей: " + result.size());
         for (TrainingRecord r : result) {